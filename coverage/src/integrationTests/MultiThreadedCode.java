@@ -16,4 +16,10 @@ public final class MultiThreadedCode
       worker.start();
       return worker;
    }
+
+   public int operationExecutedConcurrently(int value)
+   {
+      int result = value + 1;
+      return result;
+   }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package integrationTests;
+
+public final class RecursiveMethods
+{
+   public int factorial(int n)
+   {
+      if (n <= 1) {
+         return 1;
+      }
+
+      return n * factorial(n - 1);
+   }
+
+   public String parities(int n)
+   {
+      if (n > 0) {
+         String previousParities = parities(n - 1);
+
+         if (n % 2 == 0) {
+            return previousParities + 'e';
+         }
+
+         return previousParities + 'o';
+      }
+
+      return "";
+   }
+
+   public int sumOfNestedCalls(int depth)
+   {
+      int sum = depth;
+
+      if (depth > 0) {
+         sum += sumOfNestedCalls(depth - 1);
+      }
+
+      return sum;
+   }
+
+   public int sumOrFailFromCalledMethod(int n)
+   {
+      if (n < 0) {
+         return rejectNegative(n);
+      }
+
+      if (n == 0) {
+         return 0;
+      }
+
+      return n + sumOrFailFromCalledMethod(n - 1);
+   }
+
+   private static int rejectNegative(int n) { throw new IllegalArgumentException("Negative: " + n); }
+
+   public int sumOrFail(int n)
+   {
+      if (n < 0) {
+         throw new IllegalArgumentException("Negative: " + n);
+      }
+
+      if (n == 0) {
+         return 0;
+      }
+
+      return n + sumOrFail(n - 1);
+   }
+}
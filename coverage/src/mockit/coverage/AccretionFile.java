@@ -5,34 +5,80 @@
 package mockit.coverage;
 
 import java.io.*;
+import java.nio.channels.*;
 
 import mockit.coverage.data.*;
 
+/**
+ * The "<code>coverage.ser</code>" data file written at the end of a test run, optionally merged with the data from
+ * previous test runs.
+ * <p/>
+ * Several JVMs (such as forked test runs) may be writing to, or merging into, the same data file at the same time.
+ * Therefore, an exclusive lock is held on a companion "<code>coverage.ser.lock</code>" file from the reading of the
+ * existing data to the end of the writing of the new data, so that no merged data is lost.
+ * The new data is first written to a temporary file which then replaces the data file, so that a JVM only reading it
+ * (such as one generating an aggregate report) without taking the lock never sees a partially written file.
+ * <p/>
+ * The lock file is left in place, since deleting it while another JVM waits for its lock would let a third JVM lock a
+ * new file of the same name at the same time.
+ */
 final class AccretionFile
 {
    private final File outputFile;
+   private final File lockFile;
+   private final File tempFile;
    private final CoverageData newData;
 
    AccretionFile(String outputDir, CoverageData newData)
    {
       String parentDir = outputDir.length() == 0 ? null : outputDir;
       outputFile = new File(parentDir, "coverage.ser");
+      lockFile = new File(parentDir, "coverage.ser.lock");
+      tempFile = new File(parentDir, "coverage.ser.tmp");
 
       newData.fillLastModifiedTimesForAllClassFiles();
       this.newData = newData;
    }
 
-   void mergeDataFromExistingFileIfAny() throws IOException
+   void generate(boolean mergeWithExistingFile) throws IOException
+   {
+      RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+
+      try {
+         FileLock lock = lockAccess.getChannel().lock();
+
+         try {
+            if (mergeWithExistingFile) {
+               mergeDataFromExistingFileIfAny();
+            }
+
+            newData.writeDataToFile(tempFile);
+            replaceOutputFileWithTempFile();
+         }
+         finally {
+            lock.release();
+         }
+      }
+      finally {
+         lockAccess.close();
+      }
+
+      System.out.println("JMockit: Coverage data written to " + outputFile.getCanonicalPath());
+   }
+
+   private void mergeDataFromExistingFileIfAny() throws IOException
    {
       if (outputFile.exists()) {
-         CoverageData previousData = CoverageData.readDataFromFile(outputFile);
-         newData.merge(previousData);
+         newData.mergeDataFromFile(outputFile);
       }
    }
 
-   void generate() throws IOException
+   private void replaceOutputFileWithTempFile() throws IOException
    {
-      newData.writeDataToFile(outputFile);
-      System.out.println("JMockit: Coverage data written to " + outputFile.getCanonicalPath());
+      // Renaming over an existing file is atomic on POSIX systems, but fails on Windows.
+      if (!tempFile.renameTo(outputFile) && !(outputFile.delete() && tempFile.renameTo(outputFile))) {
+         tempFile.delete();
+         throw new IOException("Unable to replace " + outputFile.getPath());
+      }
    }
 }
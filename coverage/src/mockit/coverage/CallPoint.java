@@ -8,13 +8,71 @@ import java.io.*;
 import java.lang.annotation.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
+import mockit.coverage.data.*;
+import mockit.internal.state.TestRun;
 import mockit.internal.util.*;
 
+/**
+ * A test method from which a line segment was executed.
+ * <p/>
+ * The call points returned by {@link #create} are interned, one for each distinct test method; they are shared and
+ * never modified.
+ * Line segments instead hold their own copies, one per distinct call point, each one keeping the number of times it
+ * was repeated.
+ */
 public final class CallPoint implements Serializable
 {
    private static final long serialVersionUID = 362727169057343840L;
-   private static final Map<StackTraceElement, Boolean> steCache = new HashMap<StackTraceElement, Boolean>();
+
+   /**
+    * The call points for the test methods of each test class found in a stack trace, keyed by method name.
+    * Each map is computed once, when the class is first seen, and is never evicted, so that there is a single call
+    * point for each test method.
+    */
+   private static final ConcurrentMap<String, Map<String, CallPoint>> testMethodsByClass =
+      new ConcurrentHashMap<String, Map<String, CallPoint>>();
+
+   /**
+    * The names of classes found in a stack trace which have no test methods, so that they aren't searched again.
+    * Since any class can appear in the stack of code executing a probe, only the most recently used ones are kept.
+    */
+   private static final int MAX_CLASSES_WITHOUT_TEST_METHODS = 10000;
+   private static final Map<String, Boolean> classesWithoutTestMethods =
+      new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+         {
+            return size() > MAX_CLASSES_WITHOUT_TEST_METHODS;
+         }
+      };
+
+   /**
+    * The call point last found for the test running in a thread, in slots indexed by a hash of the thread.
+    * A slot remains valid until the running test changes in any thread (see
+    * {@link TestRun#getIndividualTestExecutionCount}), so that the stack gets walked only once per test method in the
+    * thread which runs it.
+    */
+   private static final int THREAD_SLOTS = 16;
+   private static final AtomicReferenceArray<CurrentTest> currentTests =
+      new AtomicReferenceArray<CurrentTest>(THREAD_SLOTS);
+
+   private static final class CurrentTest
+   {
+      final Thread thread;
+      final int testExecution;
+      final CallPoint callPoint;
+
+      CurrentTest(Thread thread, int testExecution, CallPoint callPoint)
+      {
+         this.thread = thread;
+         this.testExecution = testExecution;
+         this.callPoint = callPoint;
+      }
+   }
+
    private static final Class<? extends Annotation> testAnnotation;
    private static final boolean checkTestAnnotationOnClass;
    private static final boolean checkIfTestCaseSubclass;
@@ -67,82 +125,147 @@ public final class CallPoint implements Serializable
 
    private final StackTraceElement ste;
 
+   // Number of executions from this call point after the first one:
+   private int repetitionCount;
+
    public CallPoint(StackTraceElement ste) { this.ste = ste; }
 
    public StackTraceElement getStackTraceElement() { return ste; }
+   public int getExecutionCount() { return 1 + repetitionCount; }
+
+   public CallPoint copyForSegment() { return new CallPoint(ste); }
+
+   public void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeString(ste.getClassName());
+      out.writeString(ste.getMethodName());
+      out.writeString(ste.getFileName());
+      out.writeSignedInt(ste.getLineNumber());
+      out.writeInt(repetitionCount);
+   }
 
-   static CallPoint create(Throwable newThrowable)
+   public static CallPoint readFrom(CoverageInput in) throws IOException
+   {
+      String className = in.readString();
+      String methodName = in.readString();
+      String fileName = in.readString();
+      int line = in.readSignedInt();
+
+      CallPoint callPoint = new CallPoint(new StackTraceElement(className, methodName, fileName, line));
+      callPoint.repetitionCount = in.readInt();
+      return callPoint;
+   }
+   public void addRepetition() { repetitionCount++; }
+   public void addExecutions(CallPoint other) { repetitionCount += other.getExecutionCount(); }
+
+   static CallPoint create()
+   {
+      Thread currentThread = Thread.currentThread();
+      int slot = System.identityHashCode(currentThread) & THREAD_SLOTS - 1;
+      int testExecution = TestRun.getIndividualTestExecutionCount();
+      CurrentTest currentTest = currentTests.get(slot);
+
+      if (currentTest != null && currentTest.thread == currentThread && currentTest.testExecution == testExecution) {
+         return currentTest.callPoint;
+      }
+
+      // Frames to skip: this method, the TestRun method which called it, and the method containing the probe.
+      CallPoint callPoint = create(new Throwable(), 3);
+
+      if (callPoint != null) {
+         currentTests.set(slot, new CurrentTest(currentThread, testExecution, callPoint));
+      }
+
+      return callPoint;
+   }
+
+   private static CallPoint create(Throwable newThrowable, int framesToSkip)
    {
       StackTrace st = new StackTrace(newThrowable);
       int n = st.getDepth();
 
-      for (int i = 2; i < n; i++) {
+      for (int i = framesToSkip; i < n; i++) {
          StackTraceElement ste = st.getElement(i);
 
-         if (isTestMethod(ste)) {
-            return new CallPoint(ste);
+         if (ste.getFileName() != null && ste.getLineNumber() >= 0) {
+            CallPoint callPoint = getTestMethods(ste).get(ste.getMethodName());
+
+            if (callPoint != null) {
+               return callPoint;
+            }
          }
       }
 
       return null;
    }
 
-   private static boolean isTestMethod(StackTraceElement ste)
+   private static Map<String, CallPoint> getTestMethods(StackTraceElement ste)
    {
-      if (steCache.containsKey(ste)){
-         return steCache.get(ste);
-      }
+      String className = ste.getClassName();
+      Map<String, CallPoint> testMethods = testMethodsByClass.get(className);
 
-      if (ste.getFileName() == null || ste.getLineNumber() < 0) {
-         steCache.put(ste, false);
-         return false;
+      if (testMethods != null) {
+         return testMethods;
       }
 
-      Class<?> aClass = loadClass(ste.getClassName());
-      Method method = findMethod(aClass, ste.getMethodName());
-
-      if (method == null) {
-         steCache.put(ste, false);
-         return false;
+      synchronized (classesWithoutTestMethods) {
+         if (classesWithoutTestMethods.containsKey(className)) {
+            return Collections.emptyMap();
+         }
       }
 
-      boolean isTestMethod =
-         checkTestAnnotationOnClass && aClass.isAnnotationPresent(testAnnotation) ||
-         containsATestFrameworkAnnotation(method.getDeclaredAnnotations()) ||
-         checkIfTestCaseSubclass && isJUnit3xTestMethod(aClass, method);
+      testMethods = findTestMethods(className, ste.getFileName());
 
-      steCache.put(ste, isTestMethod);
+      if (testMethods.isEmpty()) {
+         synchronized (classesWithoutTestMethods) {
+            classesWithoutTestMethods.put(className, Boolean.TRUE);
+         }
+
+         return testMethods;
+      }
 
-      return isTestMethod;
+      Map<String, CallPoint> previousTestMethods = testMethodsByClass.putIfAbsent(className, testMethods);
+      return previousTestMethods == null ? testMethods : previousTestMethods;
    }
 
-   private static Class<?> loadClass(String className)
+   private static Map<String, CallPoint> findTestMethods(String className, String fileName)
    {
+      Class<?> aClass;
+
       try {
-         return Class.forName(className);
+         aClass = Class.forName(className);
       }
-      catch (ClassNotFoundException e) {
-         throw new RuntimeException(e);
+      catch (ClassNotFoundException ignore) {
+         return Collections.emptyMap();
       }
-   }
 
-   private static Method findMethod(Class<?> aClass, String name)
-   {
+      Map<String, CallPoint> testMethods = new HashMap<String, CallPoint>();
+
       try {
+         boolean testClass = checkTestAnnotationOnClass && aClass.isAnnotationPresent(testAnnotation);
+         boolean junit3TestClass = checkIfTestCaseSubclass && isJUnit3xTestClass(aClass);
+
          for (Method method : aClass.getDeclaredMethods()) {
+            String name = method.getName();
+
             if (
                Modifier.isPublic(method.getModifiers()) && method.getReturnType() == void.class &&
-               name.equals(method.getName())
+               !testMethods.containsKey(name) && (
+                  testClass || containsATestFrameworkAnnotation(method.getDeclaredAnnotations()) ||
+                  junit3TestClass && name.startsWith("test")
+               )
             ) {
-               return method;
+               // The line number is left out, since all executions from the same test method share the call point.
+               StackTraceElement testMethod = new StackTraceElement(className, name, fileName, -1);
+               testMethods.put(name, new CallPoint(testMethod));
             }
          }
       }
       catch (NoClassDefFoundError e) {
-         System.out.println(e + " when attempting to find method \"" + name + "\" in " + aClass);
+         System.out.println(e + " when attempting to find test methods in " + aClass);
       }
 
-      return null;
+      return testMethods.isEmpty() ? Collections.<String, CallPoint>emptyMap() : testMethods;
    }
 
    private static boolean containsATestFrameworkAnnotation(Annotation[] methodAnnotations)
@@ -158,15 +281,11 @@ public final class CallPoint implements Serializable
       return false;
    }
 
-   private static boolean isJUnit3xTestMethod(Class<?> aClass, Method method)
+   private static boolean isJUnit3xTestClass(Class<?> aClass)
    {
-      if (!method.getName().startsWith("test")) {
-         return false;
-      }
-
       Class<?> superClass = aClass.getSuperclass();
 
-      while (superClass != Object.class) {
+      while (superClass != null && superClass != Object.class) {
          if ("junit.framework.TestCase".equals(superClass.getName())) {
             return true;
          }
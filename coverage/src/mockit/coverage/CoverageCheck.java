@@ -112,6 +112,7 @@ final class CoverageCheck
    {
       if (thresholds == null) return;
       allThresholdsSatisfied = true;
+      CoverageData.instance().addCountsFromProbeArrays();
 
       for (final Threshold threshold : thresholds) {
          Metrics.performAction(new Metrics.Action() {
@@ -6,9 +6,19 @@ package mockit.coverage;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mockit.coverage.data.*;
 
+/**
+ * Merges the coverage data from a set of "<code>coverage.ser</code>" files into a single {@code CoverageData} object.
+ * <p/>
+ * The input files are read in parallel, each one by a separate task in a pool with one thread per available
+ * processor.
+ * Every task streams the entries of its file (one source file at a time) into an {@link OrderedMerge}, so that memory
+ * use does not grow with the number or size of the input files, while the result is the same as when reading the
+ * files sequentially in the order given.
+ */
 final class DataFileMerging
 {
    private final List<File> inputFiles;
@@ -37,25 +47,77 @@ final class DataFileMerging
 
    CoverageData merge() throws IOException
    {
-      CoverageData mergedData = null;
+      List<File> existingInputFiles = new ArrayList<File>(inputFiles.size());
 
       for (File inputFile : inputFiles) {
          if (inputFile.exists()) {
-            CoverageData existingData = CoverageData.readDataFromFile(inputFile);
-
-            if (mergedData == null) {
-               mergedData = existingData;
-            }
-            else {
-               mergedData.merge(existingData);
-            }
+            existingInputFiles.add(inputFile);
          }
       }
 
-      if (mergedData == null) {
+      if (existingInputFiles.isEmpty()) {
          throw new IllegalArgumentException("No input \"coverage.ser\" files found");
       }
 
-      return mergedData;
+      OrderedMerge merge = new OrderedMerge();
+
+      if (existingInputFiles.size() == 1) {
+         merge.mergeDataFromFile(existingInputFiles.get(0), 0);
+      }
+      else {
+         mergeInParallel(merge, existingInputFiles);
+      }
+
+      return merge.getMergedData();
+   }
+
+   private static void mergeInParallel(final OrderedMerge merge, List<File> filesToMerge) throws IOException
+   {
+      int threads = Math.min(Runtime.getRuntime().availableProcessors(), filesToMerge.size());
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+      try {
+         List<Future<?>> merges = new ArrayList<Future<?>>(filesToMerge.size());
+
+         for (int i = 0, n = filesToMerge.size(); i < n; i++) {
+            final File inputFile = filesToMerge.get(i);
+            final int inputOrder = i;
+
+            merges.add(executor.submit(new Callable<Object>() {
+               public Object call() throws IOException
+               {
+                  merge.mergeDataFromFile(inputFile, inputOrder);
+                  return null;
+               }
+            }));
+         }
+
+         for (Future<?> fileMerge : merges) {
+            waitForCompletion(fileMerge);
+         }
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private static void waitForCompletion(Future<?> fileMerge) throws IOException
+   {
+      try {
+         fileMerge.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while reading coverage data files");
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof IOException) throw (IOException) cause;
+         if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+         if (cause instanceof Error) throw (Error) cause;
+
+         throw new RuntimeException(cause);
+      }
    }
 }
\ No newline at end of file
@@ -50,7 +50,7 @@ final class OutputFileGenerator
 
    boolean isOutputToBeGenerated()
    {
-      return isOutputWithCallpointsToBeGenerated() || hasOutputFormat("html-nocp");
+      return isOutputWithCallpointsToBeGenerated() || hasOutputFormat("html-nocp") || hasOutputFormat("xml");
    }
 
    private boolean isOutputWithCallpointsToBeGenerated()
@@ -77,6 +77,7 @@ final class OutputFileGenerator
    void generate()
    {
       CoverageData coverageData = CoverageData.instance();
+      coverageData.addCountsFromProbeArrays();
 
       if (coverageData.isEmpty()) {
          System.out.println(
@@ -89,6 +90,7 @@ final class OutputFileGenerator
 
       try {
          generateAccretionDataFileIfRequested(coverageData);
+         generateXMLFileIfRequested(coverageData);
          generateHTMLReportIfRequested(coverageData);
       }
       catch (IOException e) {
@@ -102,6 +104,7 @@ final class OutputFileGenerator
 
       try {
          CoverageData coverageData = new DataFileMerging(inputPaths).merge();
+         generateXMLFileIfRequested(coverageData);
          generateHTMLReportIfRequested(coverageData);
       }
       catch (IOException e) {
@@ -124,12 +127,17 @@ final class OutputFileGenerator
    private void generateAccretionDataFileIfRequested(CoverageData newData) throws IOException
    {
       if (hasOutputFormat("serial")) {
-         new AccretionFile(outputDir, newData).generate();
+         new AccretionFile(outputDir, newData).generate(false);
       }
       else if (hasOutputFormat("merge")) {
-         AccretionFile accretionFile = new AccretionFile(outputDir, newData);
-         accretionFile.mergeDataFromExistingFileIfAny();
-         accretionFile.generate();
+         new AccretionFile(outputDir, newData).generate(true);
+      }
+   }
+
+   private void generateXMLFileIfRequested(CoverageData coverageData) throws IOException
+   {
+      if (hasOutputFormat("xml")) {
+         new XmlFile(outputDir, coverageData).generate();
       }
    }
 
@@ -4,109 +4,90 @@
  */
 package mockit.coverage;
 
+import java.util.concurrent.atomic.*;
+
 import mockit.coverage.data.*;
 
 @SuppressWarnings("UnusedDeclaration")
 public final class TestRun
 {
-   /**
-    * Used to prevent reentrancy in methods which gather coverage information, when measuring the coverage of
-    * JMockit Coverage itself.
-    */
-   private static final ThreadLocal<Boolean> executingCall = new ThreadLocal<Boolean>()
-   {
-      @Override
-      protected Boolean initialValue() { return false; }
-   };
-
    private TestRun() {}
 
-   public static void lineExecuted(String file, int line)
+   public static void lineExecuted(int fileIndex, int line)
    {
-      if (executingCall.get()) {
-         return;
-      }
-
-      executingCall.set(true);
-
       CoverageData coverageData = CoverageData.instance();
-      CallPoint callPoint = coverageData.isWithCallPoints() ? CallPoint.create(new Throwable()) : null;
+      CallPoint callPoint = coverageData.isWithCallPoints() ? CallPoint.create() : null;
 
-      FileCoverageData fileData = coverageData.getFileData(file);
+      FileCoverageData fileData = coverageData.getFileData(fileIndex);
       fileData.lineCoverageInfo.registerExecution(line, callPoint);
-
-      executingCall.set(false);
    }
 
-   public static void jumpTargetExecuted(String file, int line, int segment)
+   public static void jumpTargetExecuted(int fileIndex, int line, int segment)
    {
-      if (executingCall.get()) {
-         return;
-      }
-
-      executingCall.set(true);
-
       CoverageData coverageData = CoverageData.instance();
-      CallPoint callPoint = coverageData.isWithCallPoints() ? CallPoint.create(new Throwable()) : null;
+      CallPoint callPoint = coverageData.isWithCallPoints() ? CallPoint.create() : null;
 
-      FileCoverageData fileData = coverageData.getFileData(file);
+      FileCoverageData fileData = coverageData.getFileData(fileIndex);
       fileData.lineCoverageInfo.registerExecution(line, segment, true, callPoint);
-
-      executingCall.set(false);
    }
 
-   public static void noJumpTargetExecuted(String file, int line, int segment)
+   public static void noJumpTargetExecuted(int fileIndex, int line, int segment)
    {
-      if (executingCall.get()) {
-         return;
-      }
-
-      executingCall.set(true);
-
       CoverageData coverageData = CoverageData.instance();
-      CallPoint callPoint = coverageData.isWithCallPoints() ? CallPoint.create(new Throwable()) : null;
+      CallPoint callPoint = coverageData.isWithCallPoints() ? CallPoint.create() : null;
 
-      FileCoverageData fileData = coverageData.getFileData(file);
+      FileCoverageData fileData = coverageData.getFileData(fileIndex);
       fileData.lineCoverageInfo.registerExecution(line, segment, false, callPoint);
-
-      executingCall.set(false);
    }
 
-   public static void nodeReached(String file, int firstLineInMethodBody, int node)
+   public static AtomicIntegerArray getProbeArray(int fileIndex, int probeArrayIndex)
    {
-      if (executingCall.get()) {
-         return;
-      }
-
-      executingCall.set(true);
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      return fileData.lineCoverageInfo.getProbeArray(probeArrayIndex);
+   }
 
-      FileCoverageData fileData = CoverageData.instance().getFileData(file);
+   public static void nodeReached(int fileIndex, int firstLineInMethodBody, int node)
+   {
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
       fileData.pathCoverageInfo.registerExecution(firstLineInMethodBody, node);
+   }
 
-      executingCall.set(false);
+   public static void throwReached(int fileIndex, int firstLineInMethodBody, int node)
+   {
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      fileData.pathCoverageInfo.registerThrow(firstLineInMethodBody, node);
    }
 
-   public static void fieldAssigned(String file, String classAndFieldNames)
+   public static void exceptionPropagated(int fileIndex, int firstLineInMethodBody)
+   {
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      fileData.pathCoverageInfo.registerExceptionPropagated(firstLineInMethodBody);
+   }
+
+   // Owner instances of instance fields are only compared by identity, so these methods never call back into code
+   // from covered classes.
+
+   public static void fieldAssigned(int fileIndex, int fieldIndex)
    {
-      FileCoverageData fileData = CoverageData.instance().getFileData(file);
-      fileData.dataCoverageInfo.registerAssignmentToStaticField(classAndFieldNames);
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      fileData.dataCoverageInfo.registerAssignmentToStaticField(fieldIndex);
    }
 
-   public static void fieldRead(String file, String classAndFieldNames)
+   public static void fieldRead(int fileIndex, int fieldIndex)
    {
-      FileCoverageData fileData = CoverageData.instance().getFileData(file);
-      fileData.dataCoverageInfo.registerReadOfStaticField(classAndFieldNames);
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      fileData.dataCoverageInfo.registerReadOfStaticField(fieldIndex);
    }
 
-   public static void fieldAssigned(Object instance, String file, String classAndFieldNames)
+   public static void fieldAssigned(Object instance, int fileIndex, int fieldIndex)
    {
-      FileCoverageData fileData = CoverageData.instance().getFileData(file);
-      fileData.dataCoverageInfo.registerAssignmentToInstanceField(instance, classAndFieldNames);
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      fileData.dataCoverageInfo.registerAssignmentToInstanceField(instance, fieldIndex);
    }
 
-   public static void fieldRead(Object instance, String file, String classAndFieldNames)
+   public static void fieldRead(Object instance, int fileIndex, int fieldIndex)
    {
-      FileCoverageData fileData = CoverageData.instance().getFileData(file);
-      fileData.dataCoverageInfo.registerReadOfInstanceField(instance, classAndFieldNames);
+      FileCoverageData fileData = CoverageData.instance().getFileData(fileIndex);
+      fileData.dataCoverageInfo.registerReadOfInstanceField(instance, fieldIndex);
    }
 }
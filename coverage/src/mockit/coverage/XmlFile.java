@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.io.*;
+import java.util.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.dataItems.*;
+import mockit.coverage.lines.*;
+import mockit.coverage.paths.*;
+
+/**
+ * The "<code>coverage.xml</code>" file written at the end of a test run, with the coverage data for each source file
+ * in a form readable by other tools.
+ * <p/>
+ * Elements are written directly to a buffered file writer as the per-file data is traversed, one source file at a
+ * time, so that memory use does not grow with the number of files.
+ * Only the metrics which are active get written:
+ * <pre>
+ * &lt;coverage>
+ *   &lt;file path="orderMngr/domain/Order.java">
+ *     &lt;metric name="Line" total="20" covered="18"/>
+ *     &lt;line number="12" count="3" segments="2" coveredSegments="2"/>
+ *     &lt;method name="addItem" firstLine="12" lastLine="15" count="3" paths="4" coveredPaths="2"/>
+ *     &lt;field name="Order.items" static="false" reads="3" writes="1" covered="true"/>
+ *   &lt;/file>
+ *   &lt;total metric="Line" total="20" covered="18"/>
+ * &lt;/coverage>
+ * </pre>
+ */
+final class XmlFile
+{
+   private final File outputFile;
+   private final CoverageData coverageData;
+   private final List<Metrics> activeMetrics;
+   private final int[] totalItems;
+   private final int[] coveredItems;
+   private Writer output;
+
+   XmlFile(String outputDir, CoverageData coverageData)
+   {
+      String parentDir = outputDir.length() == 0 ? null : outputDir;
+      outputFile = new File(parentDir, "coverage.xml");
+      this.coverageData = coverageData;
+      activeMetrics = new ArrayList<Metrics>();
+
+      for (Metrics metric : Metrics.values()) {
+         if (metric.isActive()) {
+            activeMetrics.add(metric);
+         }
+      }
+
+      totalItems = new int[Metrics.values().length];
+      coveredItems = new int[totalItems.length];
+   }
+
+   void generate() throws IOException
+   {
+      output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"), 64 * 1024);
+
+      try {
+         output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<coverage>\n");
+         writeFiles();
+         writeTotals();
+         output.write("</coverage>\n");
+      }
+      finally {
+         output.close();
+      }
+
+      System.out.println("JMockit: Coverage XML file written to " + outputFile.getCanonicalPath());
+   }
+
+   private void writeFiles() throws IOException
+   {
+      Map<String, FileCoverageData> fileToFileData = coverageData.getFileToFileDataMap();
+      List<String> sourceFiles = new ArrayList<String>(fileToFileData.keySet());
+      Collections.sort(sourceFiles);
+
+      for (String sourceFile : sourceFiles) {
+         FileCoverageData fileData = fileToFileData.get(sourceFile);
+
+         output.write("  <file path=\"");
+         writeEscaped(sourceFile);
+         output.write("\">\n");
+
+         writeMetrics(fileData);
+
+         if (Metrics.LineCoverage.isActive()) {
+            writeLines(fileData.lineCoverageInfo);
+         }
+
+         if (Metrics.PathCoverage.isActive()) {
+            writeMethods(fileData.pathCoverageInfo);
+         }
+
+         if (Metrics.DataCoverage.isActive()) {
+            writeFields(fileData.dataCoverageInfo);
+         }
+
+         output.write("  </file>\n");
+      }
+   }
+
+   private void writeMetrics(FileCoverageData fileData) throws IOException
+   {
+      for (Metrics metric : activeMetrics) {
+         int i = metric.ordinal();
+         PerFileCoverage coverageInfo = fileData.coverageInfos[i];
+         int total = coverageInfo.getTotalItems();
+         int covered = coverageInfo.getCoveredItems();
+         totalItems[i] += total;
+         coveredItems[i] += covered;
+
+         output.write("    <metric name=\"");
+         output.write(metric.toString());
+         output.write('"');
+         writeAttribute("total", total);
+         writeAttribute("covered", covered);
+         output.write("/>\n");
+      }
+   }
+
+   private void writeLines(PerFileLineCoverage lineCoverageInfo) throws IOException
+   {
+      for (Map.Entry<Integer, LineCoverageData> lineAndData : lineCoverageInfo.lineToLineData.entrySet()) {
+         LineCoverageData lineData = lineAndData.getValue();
+
+         output.write("    <line");
+         writeAttribute("number", lineAndData.getKey());
+         writeAttribute("count", lineData.getExecutionCount());
+         writeAttribute("segments", lineData.getNumberOfSegments());
+         writeAttribute("coveredSegments", lineData.getNumberOfCoveredSegments());
+         output.write("/>\n");
+      }
+   }
+
+   private void writeMethods(PerFilePathCoverage pathCoverageInfo) throws IOException
+   {
+      for (MethodCoverageData methodData : pathCoverageInfo.firstLineToMethodData.values()) {
+         output.write("    <method name=\"");
+         writeEscaped(methodData.methodName);
+         output.write('"');
+         writeAttribute("firstLine", methodData.getFirstLineInBody());
+         writeAttribute("lastLine", methodData.getLastLineInBody());
+         writeAttribute("count", methodData.getExecutionCount());
+         writeAttribute("paths", methodData.getTotalPaths());
+         writeAttribute("coveredPaths", methodData.getCoveredPaths());
+         output.write("/>\n");
+      }
+   }
+
+   private void writeFields(PerFileDataCoverage dataCoverageInfo) throws IOException
+   {
+      for (Map.Entry<String, StaticFieldData> fieldAndData : dataCoverageInfo.staticFieldsData.entrySet()) {
+         writeField(fieldAndData.getKey(), true, fieldAndData.getValue());
+      }
+
+      for (Map.Entry<String, InstanceFieldData> fieldAndData : dataCoverageInfo.instanceFieldsData.entrySet()) {
+         writeField(fieldAndData.getKey(), false, fieldAndData.getValue());
+      }
+   }
+
+   private void writeField(String classAndFieldNames, boolean isStatic, FieldData fieldData) throws IOException
+   {
+      output.write("    <field name=\"");
+      writeEscaped(classAndFieldNames);
+      output.write(isStatic ? "\" static=\"true\"" : "\" static=\"false\"");
+      writeAttribute("reads", fieldData.getReadCount());
+      writeAttribute("writes", fieldData.getWriteCount());
+      output.write(fieldData.isCovered() ? " covered=\"true\"/>\n" : " covered=\"false\"/>\n");
+   }
+
+   private void writeTotals() throws IOException
+   {
+      for (Metrics metric : activeMetrics) {
+         int i = metric.ordinal();
+
+         output.write("  <total metric=\"");
+         output.write(metric.toString());
+         output.write('"');
+         writeAttribute("total", totalItems[i]);
+         writeAttribute("covered", coveredItems[i]);
+         output.write("/>\n");
+      }
+   }
+
+   private void writeAttribute(String name, int value) throws IOException
+   {
+      output.write(' ');
+      output.write(name);
+      output.write("=\"");
+      output.write(Integer.toString(value));
+      output.write('"');
+   }
+
+   private void writeEscaped(String text) throws IOException
+   {
+      for (int i = 0, n = text.length(); i < n; i++) {
+         char c = text.charAt(i);
+
+         switch (c) {
+            case '&': output.write("&amp;"); break;
+            case '<': output.write("&lt;"); break;
+            case '>': output.write("&gt;"); break;
+            case '"': output.write("&quot;"); break;
+            default: output.write(c);
+         }
+      }
+   }
+}
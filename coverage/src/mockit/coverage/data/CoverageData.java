@@ -24,6 +24,10 @@ public final class CoverageData implements Serializable
    private boolean withCallPoints;
    private final Map<String, FileCoverageData> fileToFileData = new ConcurrentHashMap<String, FileCoverageData>();
 
+   // Files added during the current test run, indexed by the integer ids which instrumented code passes to TestRun:
+   private transient volatile FileCoverageData[] indexedFileData = new FileCoverageData[64];
+   private transient int nextFileIndex;
+
    public boolean isWithCallPoints() { return withCallPoints; }
    public void setWithCallPoints(boolean withCallPoints) { this.withCallPoints = withCallPoints; }
 
@@ -36,7 +40,7 @@ public final class CoverageData implements Serializable
       return Collections.unmodifiableMap(fileToFileData);
    }
 
-   public FileCoverageData addFile(String file)
+   public synchronized FileCoverageData addFile(String file)
    {
       FileCoverageData fileData = getFileData(file);
 
@@ -44,14 +48,55 @@ public final class CoverageData implements Serializable
       if (fileData == null) {
          fileData = new FileCoverageData();
          fileToFileData.put(file, fileData);
+         addToIndexedFiles(fileData);
       }
 
       return fileData;
    }
 
+   /**
+    * Adds coverage data created for a source file in some other JVM, provided no data was added for the file yet.
+    *
+    * @return {@code true} if the data was added, or {@code false} otherwise
+    */
+   public synchronized boolean addFile(String file, FileCoverageData fileData)
+   {
+      if (fileToFileData.containsKey(file)) {
+         return false;
+      }
+
+      fileToFileData.put(file, fileData);
+      addToIndexedFiles(fileData);
+      return true;
+   }
+
+   private void addToIndexedFiles(FileCoverageData fileData)
+   {
+      int fileIndex = nextFileIndex++;
+      FileCoverageData[] files = indexedFileData;
+
+      if (fileIndex >= files.length) {
+         FileCoverageData[] newFiles = new FileCoverageData[2 * files.length];
+         System.arraycopy(files, 0, newFiles, 0, files.length);
+         files = newFiles;
+      }
+
+      fileData.index = fileIndex;
+      files[fileIndex] = fileData;
+      indexedFileData = files;
+   }
+
    public FileCoverageData getFileData(String file) { return fileToFileData.get(file); }
+   public FileCoverageData getFileData(int fileIndex) { return indexedFileData[fileIndex]; }
    public boolean isEmpty() { return fileToFileData.isEmpty(); }
-   public void clear() { fileToFileData.clear(); }
+
+   public synchronized void clear()
+   {
+      fileToFileData.clear();
+
+      // File indices are not reused, since code instrumented before the clearing may still be executing.
+      indexedFileData = new FileCoverageData[indexedFileData.length];
+   }
 
    /**
     * Computes the coverage percentage for a given metric, over a subset of the available source files.
@@ -100,6 +145,17 @@ public final class CoverageData implements Serializable
       return minPercentage;
    }
 
+   /**
+    * Adds the execution counts accumulated so far in the probe arrays of instrumented classes (when running with
+    * "<code>jmockit-coverage-engine=arrays</code>") to the line coverage data of each source file.
+    */
+   public void addCountsFromProbeArrays()
+   {
+      for (FileCoverageData fileData : fileToFileData.values()) {
+         fileData.lineCoverageInfo.addCountsFromProbeArrays();
+      }
+   }
+
    public void reset()
    {
       for (FileCoverageData fileCoverageData : fileToFileData.values()) {
@@ -173,14 +229,60 @@ public final class CoverageData implements Serializable
    }
 
    /**
-    * Reads a serialized {@code CoverageData} object from the given file (normally, a "<code>coverage.ser</code>" file
-    * generated at the end of a previous test run).
+    * Reads a {@code CoverageData} object from the given file (normally, a "<code>coverage.ser</code>" file generated at
+    * the end of a previous test run).
     *
-    * @param dataFile the ".ser" file containing a serialized {@code CoverageData} instance
+    * @param dataFile the ".ser" file containing coverage data, either in the binary format or as a serialized
+    *                 {@code CoverageData} instance written by older versions of the coverage tool
     *
     * @return a new object containing all coverage data resulting from a previous test run
     */
    public static CoverageData readDataFromFile(File dataFile) throws IOException
+   {
+      CoverageData data = new CoverageData();
+      data.mergeDataFromFile(dataFile);
+      return data;
+   }
+
+   /**
+    * Merges the coverage data read from the given file into this object.
+    * The file is read and merged one source file at a time, so that its full contents are never held in memory at
+    * once (except for data files from older versions of the coverage tool, which need to be deserialized as a whole).
+    *
+    * @param dataFile the ".ser" file containing coverage data from a previous test run
+    */
+   public void mergeDataFromFile(File dataFile) throws IOException
+   {
+      FileInputStream input = new FileInputStream(dataFile);
+
+      try {
+         CoverageInput in = new CoverageInput(input.getChannel());
+
+         if (in.readHeader()) {
+            mergeData(in);
+            return;
+         }
+      }
+      finally {
+         input.close();
+      }
+
+      CoverageData previousData = readSerializedDataFromFile(dataFile);
+      merge(previousData);
+   }
+
+   private void mergeData(CoverageInput in) throws IOException
+   {
+      withCallPoints |= in.readBoolean();
+
+      for (String file = in.readString(); file != null; file = in.readString()) {
+         FileCoverageData previousFileData = new FileCoverageData();
+         previousFileData.readFrom(in);
+         mergeFileData(file, previousFileData);
+      }
+   }
+
+   private static CoverageData readSerializedDataFromFile(File dataFile) throws IOException
    {
       ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
 
@@ -196,12 +298,26 @@ public final class CoverageData implements Serializable
       }
    }
 
+   /**
+    * Writes all coverage data to the given file, in the binary format.
+    * Each source file is written as a separate entry, followed by an end marker, so that readers can process one
+    * entry at a time.
+    */
    public void writeDataToFile(File dataFile) throws IOException
    {
-      ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+      FileOutputStream output = new FileOutputStream(dataFile);
 
       try {
-         output.writeObject(this);
+         CoverageOutput out = new CoverageOutput(output.getChannel());
+         out.writeBoolean(withCallPoints);
+
+         for (Map.Entry<String, FileCoverageData> fileAndFileData : fileToFileData.entrySet()) {
+            out.writeString(fileAndFileData.getKey());
+            fileAndFileData.getValue().writeTo(out);
+         }
+
+         out.writeString(null);
+         out.flush();
       }
       finally {
          output.close();
@@ -215,14 +331,19 @@ public final class CoverageData implements Serializable
       for (Map.Entry<String, FileCoverageData> previousFileAndFileData : previousData.fileToFileData.entrySet()) {
          String previousFile = previousFileAndFileData.getKey();
          FileCoverageData previousFileData = previousFileAndFileData.getValue();
-         FileCoverageData fileData = fileToFileData.get(previousFile);
+         mergeFileData(previousFile, previousFileData);
+      }
+   }
 
-         if (fileData == null) {
-            fileToFileData.put(previousFile, previousFileData);
-         }
-         else if (previousFileData.lastModified == fileData.lastModified) {
-            fileData.mergeWithDataFromPreviousTestRun(previousFileData);
-         }
+   private void mergeFileData(String previousFile, FileCoverageData previousFileData)
+   {
+      FileCoverageData fileData = fileToFileData.get(previousFile);
+
+      if (fileData == null) {
+         fileToFileData.put(previousFile, previousFileData);
+      }
+      else if (previousFileData.lastModified == fileData.lastModified) {
+         fileData.mergeWithDataFromPreviousTestRun(previousFileData);
       }
    }
 }
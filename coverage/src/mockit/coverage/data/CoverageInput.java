@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.data;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Reads coverage data written by {@link CoverageOutput}, through a file channel.
+ */
+public final class CoverageInput
+{
+   private final ReadableByteChannel channel;
+   private final ByteBuffer buffer;
+   private final List<String> stringTable;
+   private int version;
+
+   public CoverageInput(ReadableByteChannel channel)
+   {
+      this.channel = channel;
+      buffer = ByteBuffer.allocate(64 * 1024);
+      buffer.flip();
+      stringTable = new ArrayList<String>();
+   }
+
+   /**
+    * Reads the header of the data file, checking that it is in the binary format.
+    *
+    * @return {@code false} if the file is in some other format (normally, a file written through Java serialization by
+    * older versions of the coverage tool), or {@code true} otherwise
+    *
+    * @throws IOException if the file is in a newer version of the binary format
+    */
+   public boolean readHeader() throws IOException
+   {
+      if (!fill(4) || buffer.getInt() != CoverageOutput.MAGIC) {
+         return false;
+      }
+
+      version = readInt();
+
+      if (version > CoverageOutput.VERSION) {
+         throw new IOException("Unsupported version " + version + " of coverage data file");
+      }
+
+      return true;
+   }
+
+   /**
+    * Returns the version of the binary format the file was written in, so that data added in later versions can be
+    * skipped when reading older files.
+    */
+   public int getVersion() { return version; }
+
+   public boolean readBoolean() throws IOException
+   {
+      ensureAvailable(1);
+      return buffer.get() != 0;
+   }
+
+   public int readInt() throws IOException
+   {
+      int value = 0;
+      int shift = 0;
+
+      while (true) {
+         ensureAvailable(1);
+         byte b = buffer.get();
+         value |= (b & 0x7F) << shift;
+
+         if (b >= 0) {
+            return value;
+         }
+
+         shift += 7;
+
+         if (shift > 28) {
+            throw new IOException("Malformed coverage data file");
+         }
+      }
+   }
+
+   public int readSignedInt() throws IOException
+   {
+      int value = readInt();
+      return value >>> 1 ^ -(value & 1);
+   }
+
+   public long readLong() throws IOException
+   {
+      ensureAvailable(8);
+      return buffer.getLong();
+   }
+
+   public String readString() throws IOException
+   {
+      int code = readInt();
+
+      if (code == 0) {
+         return null;
+      }
+
+      if (code > 1) {
+         return stringTable.get(code - 2);
+      }
+
+      byte[] bytes = new byte[readInt()];
+      readBytes(bytes);
+
+      String value = new String(bytes, "UTF-8");
+      stringTable.add(value);
+      return value;
+   }
+
+   public byte[] readByteArray() throws IOException
+   {
+      byte[] bytes = new byte[readInt()];
+      readBytes(bytes);
+      return bytes;
+   }
+
+   private void readBytes(byte[] bytes) throws IOException
+   {
+      int offset = 0;
+
+      while (offset < bytes.length) {
+         ensureAvailable(1);
+         int length = Math.min(buffer.remaining(), bytes.length - offset);
+         buffer.get(bytes, offset, length);
+         offset += length;
+      }
+   }
+
+   private void ensureAvailable(int bytes) throws IOException
+   {
+      if (!fill(bytes)) {
+         throw new EOFException("Unexpected end of coverage data file");
+      }
+   }
+
+   private boolean fill(int bytes) throws IOException
+   {
+      if (buffer.remaining() >= bytes) {
+         return true;
+      }
+
+      buffer.compact();
+
+      try {
+         while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+               return false;
+            }
+         }
+      }
+      finally {
+         buffer.flip();
+      }
+
+      return true;
+   }
+}
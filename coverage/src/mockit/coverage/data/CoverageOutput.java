@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.data;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Writes coverage data in the compact binary format of "<code>coverage.ser</code>" files, through a file channel.
+ * <p/>
+ * Integer values are written as variable-length quantities, so that small values such as line numbers, segment
+ * indexes and most execution counts take a single byte.
+ * Strings (file, class, method and field names) are written in full only the first time they occur; afterwards, they
+ * are referenced by their position in the implicit string table built by the reader.
+ */
+public final class CoverageOutput
+{
+   static final int MAGIC = 0x4A4D4344; // "JMCD"
+   static final int VERSION = 3;
+
+   private final WritableByteChannel channel;
+   private final ByteBuffer buffer;
+   private final Map<String, Integer> stringTable;
+
+   public CoverageOutput(WritableByteChannel channel) throws IOException
+   {
+      this.channel = channel;
+      buffer = ByteBuffer.allocate(64 * 1024);
+      stringTable = new HashMap<String, Integer>();
+      buffer.putInt(MAGIC);
+      writeInt(VERSION);
+   }
+
+   public void writeBoolean(boolean value) throws IOException
+   {
+      ensureSpace(1);
+      buffer.put(value ? (byte) 1 : (byte) 0);
+   }
+
+   /**
+    * Writes a non-negative value, in one to five bytes.
+    */
+   public void writeInt(int value) throws IOException
+   {
+      ensureSpace(5);
+
+      while ((value & ~0x7F) != 0) {
+         buffer.put((byte) (value & 0x7F | 0x80));
+         value >>>= 7;
+      }
+
+      buffer.put((byte) value);
+   }
+
+   /**
+    * Writes a value which can be negative (such as the {@literal -1} execution count of a missing branch target), so
+    * that small negative values also take a single byte.
+    */
+   public void writeSignedInt(int value) throws IOException
+   {
+      writeInt(value << 1 ^ value >> 31);
+   }
+
+   public void writeLong(long value) throws IOException
+   {
+      ensureSpace(8);
+      buffer.putLong(value);
+   }
+
+   /**
+    * Writes a string, which can be {@code null}.
+    */
+   public void writeString(String value) throws IOException
+   {
+      if (value == null) {
+         writeInt(0);
+         return;
+      }
+
+      Integer index = stringTable.get(value);
+
+      if (index != null) {
+         writeInt(index + 2);
+         return;
+      }
+
+      stringTable.put(value, stringTable.size());
+      writeInt(1);
+
+      byte[] bytes = value.getBytes("UTF-8");
+      writeInt(bytes.length);
+      writeBytes(bytes);
+   }
+
+   /**
+    * Writes an array of bytes (such as a classfile), preceded by its length.
+    */
+   public void writeByteArray(byte[] bytes) throws IOException
+   {
+      writeInt(bytes.length);
+      writeBytes(bytes);
+   }
+
+   private void writeBytes(byte[] bytes) throws IOException
+   {
+      int offset = 0;
+
+      while (offset < bytes.length) {
+         ensureSpace(1);
+         int length = Math.min(buffer.remaining(), bytes.length - offset);
+         buffer.put(bytes, offset, length);
+         offset += length;
+      }
+   }
+
+   private void ensureSpace(int bytes) throws IOException
+   {
+      if (buffer.remaining() < bytes) {
+         flush();
+      }
+   }
+
+   public void flush() throws IOException
+   {
+      buffer.flip();
+
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+
+      buffer.clear();
+   }
+}
@@ -26,12 +26,33 @@ public final class FileCoverageData implements Serializable
    // Used to track the last time the ".class" file was modified, to decide if merging can be done:
    long lastModified;
 
+   // Identifies the file in instrumented code; only meaningful in the JVM where the file data was created:
+   transient int index;
+
+   public int getIndex() { return index; }
+
    public LineCoverageData addLine(int line) { return lineCoverageInfo.addLine(line); }
    public SortedMap<Integer, LineCoverageData> getLineToLineData() { return lineCoverageInfo.lineToLineData; }
 
    public void addMethod(MethodCoverageData methodData) { pathCoverageInfo.addMethod(methodData); }
    public Collection<MethodCoverageData> getMethods() { return pathCoverageInfo.firstLineToMethodData.values(); }
 
+   public void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeLong(lastModified);
+      lineCoverageInfo.writeTo(out);
+      pathCoverageInfo.writeTo(out);
+      dataCoverageInfo.writeTo(out);
+   }
+
+   public void readFrom(CoverageInput in) throws IOException
+   {
+      lastModified = in.readLong();
+      lineCoverageInfo.readFrom(in);
+      pathCoverageInfo.readFrom(in);
+      dataCoverageInfo.readFrom(in);
+   }
+
    void mergeWithDataFromPreviousTestRun(FileCoverageData previousInfo)
    {
       lineCoverageInfo.mergeInformation(previousInfo.lineCoverageInfo);
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.data;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Merges a sequence of coverage data files into a single {@code CoverageData} object, with the files being read
+ * concurrently but the result being the same as when merging them one after the other in the order given: for each
+ * source file, the data from the first input file containing it is kept, and data from other input files is only
+ * added if it refers to the same version of the source file.
+ * <p/>
+ * Each file is streamed one source file entry at a time, and each entry is merged right away into a slot for its
+ * source file and version, so that no input file is ever held in memory as a whole.
+ * Since a file earlier in the order may still be read later, a slot is kept for every version of a source file found;
+ * those for versions other than the one from the earliest file are discarded at the end.
+ * Normally, all input files refer to the same version of each source file, so there is only one slot per source file.
+ */
+public final class OrderedMerge
+{
+   private final ConcurrentMap<String, SourceFileVersions> fileToVersions =
+      new ConcurrentHashMap<String, SourceFileVersions>();
+   private volatile boolean withCallPoints;
+
+   /**
+    * Merges the coverage data read from the given file.
+    * Can be called concurrently for different files.
+    *
+    * @param dataFile the ".ser" file containing coverage data from a previous test run
+    * @param inputOrder the position of the file in the sequence of files being merged
+    */
+   public void mergeDataFromFile(File dataFile, int inputOrder) throws IOException
+   {
+      FileInputStream input = new FileInputStream(dataFile);
+
+      try {
+         CoverageInput in = new CoverageInput(input.getChannel());
+
+         if (in.readHeader()) {
+            mergeEntries(in, inputOrder);
+            return;
+         }
+      }
+      finally {
+         input.close();
+      }
+
+      // Data files from older versions of the coverage tool need to be deserialized as a whole.
+      CoverageData previousData = CoverageData.readDataFromFile(dataFile);
+
+      if (previousData.isWithCallPoints()) {
+         withCallPoints = true;
+      }
+
+      for (Map.Entry<String, FileCoverageData> fileAndFileData : previousData.getFileToFileDataMap().entrySet()) {
+         mergeFileData(fileAndFileData.getKey(), fileAndFileData.getValue(), inputOrder);
+      }
+   }
+
+   private void mergeEntries(CoverageInput in, int inputOrder) throws IOException
+   {
+      if (in.readBoolean()) {
+         withCallPoints = true;
+      }
+
+      for (String file = in.readString(); file != null; file = in.readString()) {
+         FileCoverageData fileData = new FileCoverageData();
+         fileData.readFrom(in);
+         mergeFileData(file, fileData, inputOrder);
+      }
+   }
+
+   private void mergeFileData(String file, FileCoverageData fileData, int inputOrder)
+   {
+      SourceFileVersions versions = fileToVersions.get(file);
+
+      if (versions == null) {
+         SourceFileVersions newVersions = new SourceFileVersions();
+         versions = fileToVersions.putIfAbsent(file, newVersions);
+
+         if (versions == null) {
+            versions = newVersions;
+         }
+      }
+
+      versions.merge(fileData, inputOrder);
+   }
+
+   /**
+    * Returns the merged data, once all files have been merged.
+    */
+   public CoverageData getMergedData()
+   {
+      CoverageData mergedData = new CoverageData();
+      mergedData.setWithCallPoints(withCallPoints);
+
+      for (Map.Entry<String, SourceFileVersions> fileAndVersions : fileToVersions.entrySet()) {
+         mergedData.addFile(fileAndVersions.getKey(), fileAndVersions.getValue().getFirstVersion());
+      }
+
+      return mergedData;
+   }
+
+   private static final class SourceFileVersions
+   {
+      private final List<FileCoverageData> versions = new ArrayList<FileCoverageData>(1);
+      private final List<Integer> firstInputOrders = new ArrayList<Integer>(1);
+
+      synchronized void merge(FileCoverageData fileData, int inputOrder)
+      {
+         for (int i = 0, n = versions.size(); i < n; i++) {
+            FileCoverageData version = versions.get(i);
+
+            if (version.lastModified == fileData.lastModified) {
+               version.mergeWithDataFromPreviousTestRun(fileData);
+
+               if (inputOrder < firstInputOrders.get(i)) {
+                  firstInputOrders.set(i, inputOrder);
+               }
+
+               return;
+            }
+         }
+
+         versions.add(fileData);
+         firstInputOrders.add(inputOrder);
+      }
+
+      synchronized FileCoverageData getFirstVersion()
+      {
+         int first = 0;
+
+         for (int i = 1, n = versions.size(); i < n; i++) {
+            if (firstInputOrders.get(i) < firstInputOrders.get(first)) {
+               first = i;
+            }
+         }
+
+         return versions.get(first);
+      }
+   }
+}
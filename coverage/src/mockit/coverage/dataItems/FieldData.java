@@ -6,6 +6,8 @@ package mockit.coverage.dataItems;
 
 import java.io.*;
 
+import mockit.coverage.data.*;
+
 public abstract class FieldData implements Serializable
 {
    private static final long serialVersionUID = 8565599590976858508L;
@@ -35,10 +37,31 @@ public abstract class FieldData implements Serializable
 
    abstract void markAsCoveredIfNoUnreadValuesAreLeft();
 
+   final void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeInt(readCount);
+      out.writeInt(writeCount);
+
+      // The coverage state is not fixed here, since the field may still be accessed afterwards (when the data gets
+      // written to the cache of instrumented classes).
+      Boolean previousState = covered;
+      out.writeBoolean(isCovered());
+      covered = previousState;
+   }
+
+   final void readFrom(CoverageInput in) throws IOException
+   {
+      readCount = in.readInt();
+      writeCount = in.readInt();
+
+      // A field not covered before can still become covered, if the data is used in a new test run.
+      covered = in.readBoolean() ? Boolean.TRUE : null;
+   }
+
    final void addCountsFromPreviousTestRun(FieldData previousInfo)
    {
       readCount += previousInfo.readCount;
       writeCount += previousInfo.writeCount;
-      covered = isCovered() || previousInfo.covered;
+      covered = isCovered() || previousInfo.isCovered();
    }
 }
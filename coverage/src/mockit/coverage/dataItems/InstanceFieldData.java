@@ -12,36 +12,30 @@ public final class InstanceFieldData extends FieldData
 {
    private static final long serialVersionUID = 6991762113575259754L;
 
-   private final transient Map<Integer, List<Integer>> testIdsToAssignments = new HashMap<Integer, List<Integer>>();
+   // For each test, in the order in which they first assigned the field, the owner instances with an assigned value
+   // not yet read; instances which get garbage collected before the value is read still count as unread.
+   private final transient Map<Integer, WeakIdentitySet> testIdsToAssignments =
+      new LinkedHashMap<Integer, WeakIdentitySet>();
 
-   void registerAssignment(Object instance)
+   synchronized void registerAssignment(Object instance)
    {
-      List<Integer> dataForRunningTest = getDataForRunningTest();
-      Integer instanceId = System.identityHashCode(instance);
-
-      if (!dataForRunningTest.contains(instanceId)) {
-         dataForRunningTest.add(instanceId);
-      }
-
+      getDataForRunningTest().add(instance);
       writeCount++;
    }
 
-   void registerRead(Object instance)
+   synchronized void registerRead(Object instance)
    {
-      List<Integer> dataForRunningTest = getDataForRunningTest();
-      Integer instanceId = System.identityHashCode(instance);
-
-      dataForRunningTest.remove(instanceId);
+      getDataForRunningTest().remove(instance);
       readCount++;
    }
 
-   private List<Integer> getDataForRunningTest()
+   private WeakIdentitySet getDataForRunningTest()
    {
       int testId = TestRun.getTestId();
-      List<Integer> fieldData = testIdsToAssignments.get(testId);
+      WeakIdentitySet fieldData = testIdsToAssignments.get(testId);
 
       if (fieldData == null) {
-         fieldData = new LinkedList<Integer>();
+         fieldData = new WeakIdentitySet();
          testIdsToAssignments.put(testId, fieldData);
       }
 
@@ -49,22 +43,26 @@ public final class InstanceFieldData extends FieldData
    }
 
    @Override
-   void markAsCoveredIfNoUnreadValuesAreLeft()
+   synchronized void markAsCoveredIfNoUnreadValuesAreLeft()
    {
-      for (List<Integer> unreadInstances : testIdsToAssignments.values()) {
-         if (unreadInstances.isEmpty()) {
+      for (WeakIdentitySet unreadInstances : testIdsToAssignments.values()) {
+         if (unreadInstances.isEmptyWithNoneCollected()) {
             covered = true;
             break;
          }
       }
    }
 
-   public List<Integer> getOwnerInstancesWithUnreadAssignments()
+   /**
+    * Returns the identity hash codes of the owner instances still alive whose assigned value was not read, in the
+    * first test to assign a value to the field.
+    */
+   public synchronized List<Integer> getOwnerInstancesWithUnreadAssignments()
    {
       if (isCovered()) {
          return Collections.emptyList();
       }
 
-      return testIdsToAssignments.values().iterator().next();
+      return testIdsToAssignments.values().iterator().next().getIdentityHashCodes();
    }
 }
@@ -21,35 +21,70 @@ public final class PerFileDataCoverage implements PerFileCoverage
 
    private transient int coveredDataItems = -1;
 
+   // Fields added during the current test run, indexed by the integer ids which instrumented code passes to TestRun:
+   private transient Map<String, Integer> fieldIndexes = new HashMap<String, Integer>();
+   private transient volatile FieldData[] indexedFields = new FieldData[8];
+
    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
    {
       coveredDataItems = -1;
+      fieldIndexes = new HashMap<String, Integer>();
+      indexedFields = new FieldData[8];
       in.defaultReadObject();
    }
 
-   public void addField(String className, String fieldName, boolean isStatic)
+   public synchronized void addField(String className, String fieldName, boolean isStatic)
    {
       String classAndField = className + '.' + fieldName;
       allFields.add(classAndField);
 
+      FieldData fieldData;
+
       if (isStatic) {
-         staticFieldsData.put(classAndField, new StaticFieldData());
+         StaticFieldData staticData = new StaticFieldData();
+         staticFieldsData.put(classAndField, staticData);
+         fieldData = staticData;
       }
       else {
-         instanceFieldsData.put(classAndField, new InstanceFieldData());
+         InstanceFieldData instanceData = new InstanceFieldData();
+         instanceFieldsData.put(classAndField, instanceData);
+         fieldData = instanceData;
+      }
+
+      addToIndexedFields(classAndField, fieldData);
+   }
+
+   private void addToIndexedFields(String classAndField, FieldData fieldData)
+   {
+      Integer existingIndex = fieldIndexes.get(classAndField);
+      int fieldIndex = existingIndex == null ? fieldIndexes.size() : existingIndex;
+      FieldData[] fields = indexedFields;
+
+      if (fieldIndex >= fields.length) {
+         FieldData[] newFields = new FieldData[2 * fields.length];
+         System.arraycopy(fields, 0, newFields, 0, fields.length);
+         fields = newFields;
       }
+
+      // A field added again (when its class is redefined) keeps the index already compiled into existing code.
+      fieldIndexes.put(classAndField, fieldIndex);
+      fields[fieldIndex] = fieldData;
+      indexedFields = fields;
    }
 
-   public boolean isFieldWithCoverageData(String classAndFieldNames)
+   /**
+    * Returns the index of the given field for use by instrumented code, or {@literal -1} if the field has no coverage
+    * data.
+    */
+   public synchronized int getFieldIndex(String classAndFieldNames)
    {
-      return
-         instanceFieldsData.containsKey(classAndFieldNames) ||
-         staticFieldsData.containsKey(classAndFieldNames);
+      Integer fieldIndex = fieldIndexes.get(classAndFieldNames);
+      return fieldIndex == null ? -1 : fieldIndex;
    }
 
-   public void registerAssignmentToStaticField(String classAndFieldNames)
+   public void registerAssignmentToStaticField(int fieldIndex)
    {
-      StaticFieldData staticData = getStaticFieldData(classAndFieldNames);
+      StaticFieldData staticData = (StaticFieldData) indexedFields[fieldIndex];
       staticData.registerAssignment();
    }
 
@@ -58,15 +93,15 @@ public final class PerFileDataCoverage implements PerFileCoverage
       return staticFieldsData.get(classAndFieldNames);
    }
 
-   public void registerReadOfStaticField(String classAndFieldNames)
+   public void registerReadOfStaticField(int fieldIndex)
    {
-      StaticFieldData staticData = getStaticFieldData(classAndFieldNames);
+      StaticFieldData staticData = (StaticFieldData) indexedFields[fieldIndex];
       staticData.registerRead();
    }
 
-   public void registerAssignmentToInstanceField(Object instance, String classAndFieldNames)
+   public void registerAssignmentToInstanceField(Object instance, int fieldIndex)
    {
-      InstanceFieldData instanceData = getInstanceFieldData(classAndFieldNames);
+      InstanceFieldData instanceData = (InstanceFieldData) indexedFields[fieldIndex];
       instanceData.registerAssignment(instance);
    }
 
@@ -75,9 +110,9 @@ public final class PerFileDataCoverage implements PerFileCoverage
       return instanceFieldsData.get(classAndFieldNames);
    }
 
-   public void registerReadOfInstanceField(Object instance, String classAndFieldNames)
+   public void registerReadOfInstanceField(Object instance, int fieldIndex)
    {
-      InstanceFieldData instanceData = getInstanceFieldData(classAndFieldNames);
+      InstanceFieldData instanceData = (InstanceFieldData) indexedFields[fieldIndex];
       instanceData.registerRead(instance);
    }
 
@@ -135,6 +170,69 @@ public final class PerFileDataCoverage implements PerFileCoverage
       return CoveragePercentage.calculate(getCoveredItems(), totalFields);
    }
 
+   public void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeInt(allFields.size());
+
+      for (String classAndField : allFields) {
+         out.writeString(classAndField);
+      }
+
+      writeFieldsData(out, staticFieldsData);
+      writeFieldsData(out, instanceFieldsData);
+   }
+
+   private static void writeFieldsData(CoverageOutput out, Map<String, ? extends FieldData> fieldsData)
+      throws IOException
+   {
+      out.writeInt(fieldsData.size());
+
+      for (Entry<String, ? extends FieldData> nameAndData : fieldsData.entrySet()) {
+         out.writeString(nameAndData.getKey());
+         nameAndData.getValue().writeTo(out);
+      }
+   }
+
+   public void readFrom(CoverageInput in) throws IOException
+   {
+      int fieldCount = in.readInt();
+
+      for (int i = 0; i < fieldCount; i++) {
+         allFields.add(in.readString());
+      }
+
+      int staticFieldCount = in.readInt();
+
+      for (int i = 0; i < staticFieldCount; i++) {
+         String classAndField = in.readString();
+         StaticFieldData staticData = new StaticFieldData();
+         staticData.readFrom(in);
+         staticFieldsData.put(classAndField, staticData);
+      }
+
+      int instanceFieldCount = in.readInt();
+
+      for (int i = 0; i < instanceFieldCount; i++) {
+         String classAndField = in.readString();
+         InstanceFieldData instanceData = new InstanceFieldData();
+         instanceData.readFrom(in);
+         instanceFieldsData.put(classAndField, instanceData);
+      }
+
+      // Fields get the same indexes as when first added, so that the data can be used by code instrumented back then.
+      for (String classAndField : allFields) {
+         if (!fieldIndexes.containsKey(classAndField)) {
+            FieldData fieldData = staticFieldsData.get(classAndField);
+
+            if (fieldData == null) {
+               fieldData = instanceFieldsData.get(classAndField);
+            }
+
+            addToIndexedFields(classAndField, fieldData);
+         }
+      }
+   }
+
    public void mergeInformation(PerFileDataCoverage previousInfo)
    {
       addInfoFromPreviousTestRun(staticFieldsData, previousInfo.staticFieldsData);
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.dataItems;
+
+import java.lang.ref.*;
+import java.util.*;
+
+/**
+ * A set of objects compared by identity, which does not prevent them from being garbage collected.
+ * <p/>
+ * Objects which get collected while still in the set are removed from it, but are still counted, so that the set is
+ * not considered empty {@linkplain #isEmptyWithNoneCollected afterwards}.
+ * Instances of this class are not thread-safe.
+ */
+final class WeakIdentitySet
+{
+   private static final class Entry extends WeakReference<Object>
+   {
+      final int hash;
+      Entry next;
+
+      Entry(Object element, int hash, Entry next, ReferenceQueue<Object> queue)
+      {
+         super(element, queue);
+         this.hash = hash;
+         this.next = next;
+      }
+   }
+
+   private final ReferenceQueue<Object> collectedElements = new ReferenceQueue<Object>();
+   private Entry[] table = new Entry[16];
+   private int size;
+   private int collectedCount;
+
+   /**
+    * Adds the given object to the set, if not already present.
+    */
+   void add(Object element)
+   {
+      removeCollectedEntries();
+
+      int hash = System.identityHashCode(element);
+      int index = hash & table.length - 1;
+
+      for (Entry entry = table[index]; entry != null; entry = entry.next) {
+         if (entry.get() == element) {
+            return;
+         }
+      }
+
+      table[index] = new Entry(element, hash, table[index], collectedElements);
+      size++;
+
+      if (size > table.length - (table.length >> 2)) {
+         resize();
+      }
+   }
+
+   private void resize()
+   {
+      Entry[] newTable = new Entry[2 * table.length];
+
+      for (Entry entry : table) {
+         while (entry != null) {
+            Entry next = entry.next;
+            int index = entry.hash & newTable.length - 1;
+            entry.next = newTable[index];
+            newTable[index] = entry;
+            entry = next;
+         }
+      }
+
+      table = newTable;
+   }
+
+   void remove(Object element)
+   {
+      removeCollectedEntries();
+
+      int index = System.identityHashCode(element) & table.length - 1;
+      Entry previous = null;
+
+      for (Entry entry = table[index]; entry != null; previous = entry, entry = entry.next) {
+         if (entry.get() == element) {
+            unlink(index, previous, entry);
+
+            // Cleared so that it doesn't get enqueued as collected later.
+            entry.clear();
+            return;
+         }
+      }
+   }
+
+   private void unlink(int index, Entry previous, Entry entry)
+   {
+      if (previous == null) {
+         table[index] = entry.next;
+      }
+      else {
+         previous.next = entry.next;
+      }
+
+      size--;
+   }
+
+   private void removeCollectedEntries()
+   {
+      for (Reference<?> collected = collectedElements.poll(); collected != null; collected = collectedElements.poll()) {
+         Entry collectedEntry = (Entry) collected;
+         int index = collectedEntry.hash & table.length - 1;
+         Entry previous = null;
+
+         for (Entry entry = table[index]; entry != null; previous = entry, entry = entry.next) {
+            if (entry == collectedEntry) {
+               unlink(index, previous, entry);
+               collectedCount++;
+               break;
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns whether the set has no live elements, and never had an element collected while in it.
+    */
+   boolean isEmptyWithNoneCollected()
+   {
+      removeCollectedEntries();
+      return size == 0 && collectedCount == 0;
+   }
+
+   /**
+    * Returns the identity hash codes of the live elements in the set.
+    */
+   List<Integer> getIdentityHashCodes()
+   {
+      List<Integer> hashCodes = new ArrayList<Integer>(size);
+
+      for (Entry entry : table) {
+         for (; entry != null; entry = entry.next) {
+            if (entry.get() != null) {
+               hashCodes.add(entry.hash);
+            }
+         }
+      }
+
+      return hashCodes;
+   }
+}
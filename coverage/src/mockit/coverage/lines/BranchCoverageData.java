@@ -4,7 +4,11 @@
  */
 package mockit.coverage.lines;
 
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
 import mockit.coverage.*;
+import mockit.coverage.data.*;
 import mockit.external.asm4.*;
 
 /**
@@ -13,61 +17,92 @@ import mockit.external.asm4.*;
 public final class BranchCoverageData extends LineSegmentData
 {
    private static final long serialVersionUID = 1003335601845442606L;
+   private static final StripedCounter<BranchCoverageData> JUMP_EXECUTION_COUNT =
+      new StripedCounter<BranchCoverageData>(BranchCoverageData.class, "jumpExecutionCount", "jumpExecutionCountCells");
 
    // Static data:
    public final transient Label jumpSource;
    public final transient Label jumpTarget;
 
    // Runtime data (and static if any execution count is -1, meaning lack of the jump target):
-   private int jumpExecutionCount;
+   volatile int jumpExecutionCount;
+   transient volatile AtomicIntegerArray jumpExecutionCountCells;
 
    BranchCoverageData(Label jumpSource, Label jumpTarget)
    {
       this.jumpSource = jumpSource;
       this.jumpTarget = jumpTarget;
       jumpExecutionCount = -1;
-      executionCount = -1;
+      setExecutionCount(-1);
    }
 
-   public void setHasJumpTarget() { jumpExecutionCount = 0; }
-   public void setHasNoJumpTarget() { executionCount = 0; }
+   public void setHasJumpTarget() { JUMP_EXECUTION_COUNT.set(this, 0); }
+   public void setHasNoJumpTarget() { setExecutionCount(0); }
 
    void registerJumpExecution(CallPoint callPoint)
    {
       assert jumpExecutionCount >= 0 : "Illegal registerJumpExecution";
-      jumpExecutionCount++;
+      JUMP_EXECUTION_COUNT.increment(this);
       addCallPointIfAny(callPoint);
    }
 
    void registerNoJumpExecution(CallPoint callPoint)
    {
       assert executionCount >= 0 : "Illegal registerNoJumpExecution";
-      executionCount++;
-      addCallPointIfAny(callPoint);
+      registerExecution(callPoint);
    }
 
+   void addJumpExecutions(int count) { JUMP_EXECUTION_COUNT.add(this, count); }
+
    @Override
    public boolean isCovered()
    {
-      return super.isCovered() || jumpExecutionCount > 0;
+      return super.isCovered() || JUMP_EXECUTION_COUNT.get(this) > 0;
    }
 
    @Override
    public int getExecutionCount()
    {
-      return executionCount > 0 ? executionCount : jumpExecutionCount > 0 ? jumpExecutionCount : 0;
+      int executionCount = getRawExecutionCount();
+
+      if (executionCount > 0) {
+         return executionCount;
+      }
+
+      int jumpExecutionCount = JUMP_EXECUTION_COUNT.get(this);
+      return jumpExecutionCount > 0 ? jumpExecutionCount : 0;
    }
 
    void addCountsFromPreviousTestRun(BranchCoverageData previousData)
    {
       addExecutionCountAndCallPointsFromPreviousTestRun(previousData);
-      jumpExecutionCount += previousData.jumpExecutionCount;
+      addJumpExecutions(JUMP_EXECUTION_COUNT.get(previousData));
    }
 
    @Override
    void reset()
    {
       super.reset();
-      jumpExecutionCount = 0;
+      JUMP_EXECUTION_COUNT.set(this, 0);
+   }
+
+   @Override
+   void writeTo(CoverageOutput out) throws IOException
+   {
+      super.writeTo(out);
+      out.writeSignedInt(JUMP_EXECUTION_COUNT.get(this));
+   }
+
+   @Override
+   void readFrom(CoverageInput in) throws IOException
+   {
+      super.readFrom(in);
+      JUMP_EXECUTION_COUNT.set(this, in.readSignedInt());
+   }
+
+   private void writeObject(ObjectOutputStream out) throws IOException
+   {
+      JUMP_EXECUTION_COUNT.foldCells(this);
+      out.defaultWriteObject();
    }
 }
@@ -4,9 +4,11 @@
  */
 package mockit.coverage.lines;
 
+import java.io.*;
 import java.util.*;
 
 import mockit.coverage.*;
+import mockit.coverage.data.*;
 import mockit.external.asm4.*;
 
 /**
@@ -62,7 +64,7 @@ public final class LineCoverageData extends LineSegmentData
          return getNumberOfSegments();
       }
 
-      if (executionCount == 0) {
+      if (getRawExecutionCount() == 0) {
          return 0;
       }
 
@@ -100,6 +102,42 @@ public final class LineCoverageData extends LineSegmentData
       }
    }
 
+   @Override
+   void writeTo(CoverageOutput out) throws IOException
+   {
+      super.writeTo(out);
+
+      if (branches == null) {
+         out.writeInt(0);
+      }
+      else {
+         out.writeInt(branches.size());
+
+         for (BranchCoverageData branch : branches) {
+            branch.writeTo(out);
+         }
+      }
+   }
+
+   @Override
+   void readFrom(CoverageInput in) throws IOException
+   {
+      super.readFrom(in);
+
+      int branchCount = in.readInt();
+
+      if (branchCount > 0) {
+         branches = new ArrayList<BranchCoverageData>(branchCount);
+
+         for (int i = 0; i < branchCount; i++) {
+            // Jump labels are only used during instrumentation, so they aren't written to data files.
+            BranchCoverageData branch = new BranchCoverageData(null, null);
+            branch.readFrom(in);
+            branches.add(branch);
+         }
+      }
+   }
+
    @Override
    public void reset()
    {
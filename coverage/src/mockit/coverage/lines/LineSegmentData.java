@@ -6,19 +6,35 @@ package mockit.coverage.lines;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import mockit.coverage.*;
+import mockit.coverage.data.*;
 
 public class LineSegmentData implements Serializable
 {
    private static final long serialVersionUID = -6233980722802474992L;
 
+   // Call points are serialized as a list, as written by previous versions of the coverage tool.
+   private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("unreachable", boolean.class), new ObjectStreamField("executionCount", int.class),
+      new ObjectStreamField("callPoints", List.class)
+   };
+
+   private static final StripedCounter<LineSegmentData> EXECUTION_COUNT =
+      new StripedCounter<LineSegmentData>(LineSegmentData.class, "executionCount", "executionCountCells");
+
    // Static data:
    boolean unreachable;
 
-   // Runtime data:
-   int executionCount;
-   private List<CallPoint> callPoints;
+   // Runtime data (counts are package-private only for access through StripedCounter):
+   volatile int executionCount;
+   transient volatile AtomicIntegerArray executionCountCells;
+
+   // The distinct call points from which the segment was executed, in the order first found, each one keeping its own
+   // count; keyed by location, so that call points from the current test run (which are interned) and those read from
+   // a data file are both found with a single lookup.
+   private transient Map<StackTraceElement, CallPoint> callPoints;
 
    public final boolean isUnreachable() { return unreachable; }
    public final void markAsUnreachable() { unreachable = true; }
@@ -26,33 +42,51 @@ public class LineSegmentData implements Serializable
    public final void registerExecution(CallPoint callPoint)
    {
       addCallPointIfAny(callPoint);
-      executionCount++;
+      EXECUTION_COUNT.increment(this);
    }
 
+   final void addExecutions(int count) { EXECUTION_COUNT.add(this, count); }
+   final int getRawExecutionCount() { return EXECUTION_COUNT.get(this); }
+   final void setExecutionCount(int count) { EXECUTION_COUNT.set(this, count); }
+
    final void addCallPointIfAny(CallPoint callPoint)
    {
       if (callPoint != null) {
-         if (callPoints == null) {
-            callPoints = new ArrayList<CallPoint>();
-         }
+         synchronized (this) {
+            if (callPoints == null) {
+               callPoints = new LinkedHashMap<StackTraceElement, CallPoint>(4);
+            }
+
+            StackTraceElement location = callPoint.getStackTraceElement();
+            CallPoint existingCallPoint = callPoints.get(location);
 
-         callPoints.add(callPoint);
+            if (existingCallPoint == null) {
+               callPoints.put(location, callPoint.copyForSegment());
+            }
+            else {
+               existingCallPoint.addRepetition();
+            }
+         }
       }
    }
 
    public final boolean containsCallPoints() { return callPoints != null; }
-   public final List<CallPoint> getCallPoints() { return callPoints; }
 
-   public int getExecutionCount() { return executionCount; }
-   public boolean isCovered() { return unreachable || executionCount > 0; }
+   public final synchronized List<CallPoint> getCallPoints()
+   {
+      return callPoints == null ? null : new ArrayList<CallPoint>(callPoints.values());
+   }
+
+   public int getExecutionCount() { return getRawExecutionCount(); }
+   public boolean isCovered() { return unreachable || getRawExecutionCount() > 0; }
 
    final void addExecutionCountAndCallPointsFromPreviousTestRun(LineSegmentData previousData)
    {
-      executionCount += previousData.executionCount;
+      addExecutions(previousData.getRawExecutionCount());
 
       if (previousData.containsCallPoints()) {
          if (containsCallPoints()) {
-            callPoints.addAll(0, previousData.callPoints);
+            addCallPointsFromPreviousTestRun(previousData.callPoints);
          }
          else {
             callPoints = previousData.callPoints;
@@ -60,5 +94,96 @@ public class LineSegmentData implements Serializable
       }
    }
 
-   void reset() { executionCount = 0; }
+   private void addCallPointsFromPreviousTestRun(Map<StackTraceElement, CallPoint> previousCallPoints)
+   {
+      // The previous call points come first, as they were found first.
+      Map<StackTraceElement, CallPoint> mergedCallPoints =
+         new LinkedHashMap<StackTraceElement, CallPoint>(previousCallPoints);
+
+      for (CallPoint callPoint : callPoints.values()) {
+         addOrMergeCallPoint(mergedCallPoints, callPoint);
+      }
+
+      callPoints = mergedCallPoints;
+   }
+
+   private static void addOrMergeCallPoint(Map<StackTraceElement, CallPoint> callPoints, CallPoint callPoint)
+   {
+      StackTraceElement location = callPoint.getStackTraceElement();
+      CallPoint existingCallPoint = callPoints.get(location);
+
+      if (existingCallPoint == null) {
+         callPoints.put(location, callPoint);
+      }
+      else {
+         existingCallPoint.addExecutions(callPoint);
+      }
+   }
+
+   void reset() { setExecutionCount(0); }
+
+   void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeBoolean(unreachable);
+      out.writeSignedInt(getRawExecutionCount());
+
+      List<CallPoint> currentCallPoints = getCallPoints();
+
+      if (currentCallPoints == null) {
+         out.writeInt(0);
+      }
+      else {
+         out.writeInt(currentCallPoints.size());
+
+         for (CallPoint callPoint : currentCallPoints) {
+            callPoint.writeTo(out);
+         }
+      }
+   }
+
+   void readFrom(CoverageInput in) throws IOException
+   {
+      unreachable = in.readBoolean();
+      setExecutionCount(in.readSignedInt());
+
+      int callPointCount = in.readInt();
+
+      if (callPointCount > 0) {
+         callPoints = new LinkedHashMap<StackTraceElement, CallPoint>(2 * callPointCount);
+
+         for (int i = 0; i < callPointCount; i++) {
+            addOrMergeCallPoint(callPoints, CallPoint.readFrom(in));
+         }
+      }
+   }
+
+   private void writeObject(ObjectOutputStream out) throws IOException
+   {
+      EXECUTION_COUNT.foldCells(this);
+
+      ObjectOutputStream.PutField fields = out.putFields();
+      fields.put("unreachable", unreachable);
+      fields.put("executionCount", executionCount);
+      fields.put("callPoints", getCallPoints());
+      out.writeFields();
+   }
+
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+   {
+      ObjectInputStream.GetField fields = in.readFields();
+      unreachable = fields.get("unreachable", false);
+      executionCount = fields.get("executionCount", 0);
+
+      //noinspection unchecked
+      List<CallPoint> previousCallPoints = (List<CallPoint>) fields.get("callPoints", null);
+
+      if (previousCallPoints != null) {
+         // Previous versions of the coverage tool kept a call point for each execution.
+         callPoints = new LinkedHashMap<StackTraceElement, CallPoint>();
+
+         for (CallPoint callPoint : previousCallPoints) {
+            addOrMergeCallPoint(callPoints, callPoint);
+         }
+      }
+   }
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ package mockit.coverage.lines;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import mockit.coverage.*;
 import mockit.coverage.data.*;
@@ -16,17 +18,34 @@ public final class PerFileLineCoverage implements PerFileCoverage
 
    public final SortedMap<Integer, LineCoverageData> lineToLineData = new TreeMap<Integer, LineCoverageData>();
 
+   // Same line data as above, but indexed directly by line number for fast lookup during test execution:
+   private transient LineCoverageData[] indexedLineData;
+
+   // Probe arrays of the classes in the file instrumented with inline execution counters, if any; a class loaded by
+   // more than one class loader has a probe array for each, so they are kept in order of creation, not by class name:
+   private transient List<ProbeArray> probeArrays;
+
    // Computed on demand:
    private transient int totalSegments;
    private transient int coveredSegments;
 
-   public PerFileLineCoverage() { initializeCache(); }
+   public PerFileLineCoverage()
+   {
+      probeArrays = new CopyOnWriteArrayList<ProbeArray>();
+      initializeCache();
+   }
+
    private void initializeCache() { totalSegments = coveredSegments = -1; }
 
    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
    {
+      probeArrays = new CopyOnWriteArrayList<ProbeArray>();
       initializeCache();
       in.defaultReadObject();
+
+      for (Map.Entry<Integer, LineCoverageData> lineAndData : lineToLineData.entrySet()) {
+         addToIndexedLines(lineAndData.getKey(), lineAndData.getValue());
+      }
    }
 
    public LineCoverageData addLine(int line)
@@ -36,20 +55,90 @@ public final class PerFileLineCoverage implements PerFileCoverage
       if (lineData == null) {
          lineData = new LineCoverageData();
          lineToLineData.put(line, lineData);
+         addToIndexedLines(line, lineData);
       }
 
       return lineData;
    }
 
+   private void addToIndexedLines(int line, LineCoverageData lineData)
+   {
+      LineCoverageData[] lines = indexedLineData;
+
+      if (lines == null) {
+         lines = new LineCoverageData[line + 1];
+      }
+      else if (line >= lines.length) {
+         LineCoverageData[] newLines = new LineCoverageData[Math.max(line + 1, 2 * lines.length)];
+         System.arraycopy(lines, 0, newLines, 0, lines.length);
+         lines = newLines;
+      }
+
+      lines[line] = lineData;
+      indexedLineData = lines;
+   }
+
+   public void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeInt(lineToLineData.size());
+      int previousLine = 0;
+
+      // Lines are written in ascending order, each one as the difference from the previous line.
+      for (Map.Entry<Integer, LineCoverageData> lineAndData : lineToLineData.entrySet()) {
+         int line = lineAndData.getKey();
+         out.writeInt(line - previousLine);
+         lineAndData.getValue().writeTo(out);
+         previousLine = line;
+      }
+   }
+
+   public void readFrom(CoverageInput in) throws IOException
+   {
+      int lineCount = in.readInt();
+      int line = 0;
+
+      for (int i = 0; i < lineCount; i++) {
+         line += in.readInt();
+         LineCoverageData lineData = addLine(line);
+         lineData.readFrom(in);
+      }
+   }
+
+   public synchronized ProbeArray addProbeArray()
+   {
+      ProbeArray probeArray = new ProbeArray(probeArrays.size());
+      probeArrays.add(probeArray);
+      return probeArray;
+   }
+
+   public AtomicIntegerArray getProbeArray(int probeArrayIndex)
+   {
+      ProbeArray probeArray = probeArrays.get(probeArrayIndex);
+      return probeArray.getCounts();
+   }
+
+   public void addCountsFromProbeArrays()
+   {
+      boolean countsAdded = false;
+
+      for (ProbeArray probeArray : probeArrays) {
+         countsAdded |= probeArray.addCountsToLineData();
+      }
+
+      if (countsAdded) {
+         initializeCache();
+      }
+   }
+
    public void registerExecution(int line, CallPoint callPoint)
    {
-      LineCoverageData lineData = lineToLineData.get(line);
+      LineCoverageData lineData = indexedLineData[line];
       lineData.registerExecution(callPoint);
    }
 
    public void registerExecution(int line, int segment, boolean jumped, CallPoint callPoint)
    {
-      LineCoverageData lineData = lineToLineData.get(line);
+      LineCoverageData lineData = indexedLineData[line];
       lineData.registerExecution(segment, jumped, callPoint);
    }
 
@@ -73,6 +162,8 @@ public final class PerFileLineCoverage implements PerFileCoverage
 
    private void computeValuesIfNeeded()
    {
+      addCountsFromProbeArrays();
+
       if (totalSegments >= 0) return;
 
       totalSegments = coveredSegments = 0;
@@ -85,6 +176,10 @@ public final class PerFileLineCoverage implements PerFileCoverage
 
    public void reset()
    {
+      // Counts still pending in probe arrays were also gathered before the reset, so they are discarded along with
+      // the others.
+      addCountsFromProbeArrays();
+
       for (LineCoverageData lineData : lineToLineData.values()) {
          lineData.reset();
       }
@@ -110,7 +205,9 @@ public final class PerFileLineCoverage implements PerFileCoverage
          Integer line = lineAndInfo.getKey();
 
          if (!lineToLineData.containsKey(line)) {
-            lineToLineData.put(line, lineAndInfo.getValue());
+            LineCoverageData previousLineInfo = lineAndInfo.getValue();
+            lineToLineData.put(line, previousLineInfo);
+            addToIndexedLines(line, previousLineInfo);
          }
       }
    }
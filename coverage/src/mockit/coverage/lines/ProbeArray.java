@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.lines;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Execution counters for the lines and branches of a single instrumented class, kept in an array which the
+ * instrumented code increments directly (that is, without calling into {@code mockit.coverage.TestRun}).
+ * <p/>
+ * Each slot in the array corresponds to a line segment registered at instrumentation time.
+ * The counts accumulated in the array are only added to the regular line coverage data when explicitly requested,
+ * normally just before generating output at the end of the test run.
+ * Since the counters are atomic, no execution is lost when the same code runs in multiple threads, or when the counts
+ * are added while the code is running.
+ */
+public final class ProbeArray
+{
+   private final int index;
+   private final List<LineSegmentData> segments = new ArrayList<LineSegmentData>();
+   private final BitSet jumpTargetSlots = new BitSet();
+   private AtomicIntegerArray counts;
+
+   ProbeArray(int index) { this.index = index; }
+
+   /**
+    * The position of this probe array among those of the same source file, which identifies it when the instrumented
+    * class gets initialized.
+    */
+   public int getIndex() { return index; }
+
+   public int addLineProbe(LineCoverageData lineData)
+   {
+      segments.add(lineData);
+      return segments.size() - 1;
+   }
+
+   public int addBranchProbe(BranchCoverageData branchData, boolean jumpTarget)
+   {
+      int slot = segments.size();
+      segments.add(branchData);
+
+      if (jumpTarget) {
+         jumpTargetSlots.set(slot);
+      }
+
+      return slot;
+   }
+
+   synchronized AtomicIntegerArray getCounts()
+   {
+      if (counts == null) {
+         counts = new AtomicIntegerArray(segments.size());
+      }
+
+      return counts;
+   }
+
+   synchronized boolean addCountsToLineData()
+   {
+      if (counts == null) {
+         return false;
+      }
+
+      boolean countsAdded = false;
+
+      for (int slot = 0, n = counts.length(); slot < n; slot++) {
+         int count = counts.getAndSet(slot, 0);
+
+         if (count > 0) {
+            LineSegmentData segment = segments.get(slot);
+
+            if (jumpTargetSlots.get(slot)) {
+               ((BranchCoverageData) segment).addJumpExecutions(count);
+            }
+            else {
+               segment.addExecutions(count);
+            }
+
+            countsAdded = true;
+         }
+      }
+
+      return countsAdded;
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.lines;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Updates an execution count held in a {@code volatile int} field of some owner object, exactly and without locking,
+ * even when many threads execute the same line segment at the same time.
+ * <p/>
+ * Each increment first tries a single compare-and-set on the count field itself.
+ * If that fails because of contention, the owner gets an array of cells (held in a second field of type
+ * {@code AtomicIntegerArray}), and from then on increments go to the cell assigned to the current thread.
+ * The actual count is the value of the base field plus the sum of all cells; for serialization, the cells must first
+ * be {@linkplain #foldCells folded} into the base field, which is the only one persisted.
+ */
+final class StripedCounter<T>
+{
+   // Each cell takes 16 ints (64 bytes) in the array, so that cells updated by different threads are less likely to
+   // share the same cache line.
+   private static final int CELL_STRIDE = 16;
+   private static final int NUMBER_OF_CELLS = numberOfCells(Runtime.getRuntime().availableProcessors());
+
+   private static int numberOfCells(int processors)
+   {
+      int cells = 2;
+
+      while (cells < processors && cells < 64) {
+         cells <<= 1;
+      }
+
+      return cells;
+   }
+
+   private final AtomicIntegerFieldUpdater<T> base;
+   private final AtomicReferenceFieldUpdater<T, AtomicIntegerArray> cells;
+
+   StripedCounter(Class<T> ownerClass, String countField, String cellsField)
+   {
+      base = AtomicIntegerFieldUpdater.newUpdater(ownerClass, countField);
+      cells = AtomicReferenceFieldUpdater.newUpdater(ownerClass, AtomicIntegerArray.class, cellsField);
+   }
+
+   void increment(T owner)
+   {
+      AtomicIntegerArray currentCells = cells.get(owner);
+
+      if (currentCells == null) {
+         int count = base.get(owner);
+
+         if (base.compareAndSet(owner, count, count + 1)) {
+            return;
+         }
+
+         currentCells = createCells(owner);
+      }
+
+      currentCells.getAndIncrement(cellForCurrentThread());
+   }
+
+   private AtomicIntegerArray createCells(T owner)
+   {
+      AtomicIntegerArray newCells = new AtomicIntegerArray(NUMBER_OF_CELLS * CELL_STRIDE);
+
+      if (cells.compareAndSet(owner, null, newCells)) {
+         return newCells;
+      }
+
+      return cells.get(owner);
+   }
+
+   private static int cellForCurrentThread()
+   {
+      int hash = System.identityHashCode(Thread.currentThread());
+      hash ^= hash >>> 16;
+      return (hash & NUMBER_OF_CELLS - 1) * CELL_STRIDE;
+   }
+
+   void add(T owner, int count) { base.getAndAdd(owner, count); }
+
+   int get(T owner)
+   {
+      int count = base.get(owner);
+      AtomicIntegerArray currentCells = cells.get(owner);
+
+      if (currentCells != null) {
+         for (int i = 0, n = currentCells.length(); i < n; i += CELL_STRIDE) {
+            count += currentCells.get(i);
+         }
+      }
+
+      return count;
+   }
+
+   void set(T owner, int count)
+   {
+      clearCells(owner);
+      base.set(owner, count);
+   }
+
+   void foldCells(T owner)
+   {
+      int countFromCells = clearCells(owner);
+
+      if (countFromCells != 0) {
+         base.getAndAdd(owner, countFromCells);
+      }
+   }
+
+   private int clearCells(T owner)
+   {
+      AtomicIntegerArray currentCells = cells.get(owner);
+      int count = 0;
+
+      if (currentCells != null) {
+         for (int i = 0, n = currentCells.length(); i < n; i += CELL_STRIDE) {
+            count += currentCells.getAndSet(i, 0);
+         }
+      }
+
+      return count;
+   }
+}
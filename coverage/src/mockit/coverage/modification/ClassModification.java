@@ -7,6 +7,7 @@ package mockit.coverage.modification;
 import java.lang.instrument.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mockit.coverage.standalone.*;
 import mockit.external.asm4.*;
@@ -15,35 +16,131 @@ public final class ClassModification
 {
    private final Set<String> modifiedClasses;
    private final ClassSelection classSelection;
+   private final InstrumentedClassCache classCache;
 
    public ClassModification()
    {
-      modifiedClasses = new HashSet<String>();
+      modifiedClasses = Collections.synchronizedSet(new HashSet<String>());
       classSelection = new ClassSelection();
+      classCache = InstrumentedClassCache.createIfEnabled();
       redefineClassesAlreadyLoadedForCoverage();
    }
 
+   /**
+    * Modifies the classes already loaded which are selected for coverage, and then redefines all of them at once.
+    * <p/>
+    * Classes are modified in parallel, in groups of classes from the same package; since all classes of a source file
+    * belong to the same package, coverage data for a given source file is only created by one thread.
+    * Inside each group, a class is always modified before its nested classes, which then get the bytecode modified
+    * together with the outer class.
+    * A single redefinition is made since each call to {@link Instrumentation#redefineClasses} has a fixed cost, which
+    * includes stopping all threads to deoptimize compiled code depending on the classes.
+    * If it fails, the classes are redefined one at a time, so that only those which cannot be redefined are left
+    * without coverage.
+    */
    private void redefineClassesAlreadyLoadedForCoverage()
    {
       Class<?>[] loadedClasses = Startup.instrumentation().getAllLoadedClasses();
+      Map<String, List<Class<?>>> packageToClasses = new HashMap<String, List<Class<?>>>();
 
       for (Class<?> loadedClass : loadedClasses) {
          if (
             loadedClass.getClassLoader() != null && !loadedClass.isAnnotation() && !loadedClass.isSynthetic() &&
             isToBeConsideredForCoverage(loadedClass.getName(), loadedClass.getProtectionDomain())
          ) {
-            redefineClassForCoverage(loadedClass);
+            String className = loadedClass.getName();
+            String packageName = className.substring(0, className.lastIndexOf('.') + 1);
+            List<Class<?>> classesInPackage = packageToClasses.get(packageName);
+
+            if (classesInPackage == null) {
+               classesInPackage = new ArrayList<Class<?>>();
+               packageToClasses.put(packageName, classesInPackage);
+            }
+
+            classesInPackage.add(loadedClass);
+         }
+      }
+
+      if (!packageToClasses.isEmpty()) {
+         List<ClassDefinition> classDefs = modifyClassesInParallel(packageToClasses.values());
+         redefineClassesForCoverage(classDefs);
+      }
+   }
+
+   private List<ClassDefinition> modifyClassesInParallel(Collection<List<Class<?>>> classGroups)
+   {
+      int threads = Math.min(Runtime.getRuntime().availableProcessors(), classGroups.size());
+
+      if (threads == 1) {
+         List<ClassDefinition> classDefs = new ArrayList<ClassDefinition>();
+
+         for (List<Class<?>> classGroup : classGroups) {
+            classDefs.addAll(modifyClassesForCoverage(classGroup));
+         }
+
+         return classDefs;
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+      try {
+         List<Future<List<ClassDefinition>>> modifications =
+            new ArrayList<Future<List<ClassDefinition>>>(classGroups.size());
+
+         for (final List<Class<?>> classGroup : classGroups) {
+            modifications.add(executor.submit(new Callable<List<ClassDefinition>>() {
+               public List<ClassDefinition> call() { return modifyClassesForCoverage(classGroup); }
+            }));
+         }
+
+         List<ClassDefinition> classDefs = new ArrayList<ClassDefinition>();
+
+         for (Future<List<ClassDefinition>> modification : modifications) {
+            classDefs.addAll(waitForCompletion(modification));
+         }
+
+         return classDefs;
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private List<ClassDefinition> modifyClassesForCoverage(List<Class<?>> classGroup)
+   {
+      Collections.sort(classGroup, new Comparator<Class<?>>() {
+         public int compare(Class<?> class1, Class<?> class2) { return class1.getName().compareTo(class2.getName()); }
+      });
+
+      List<ClassDefinition> classDefs = new ArrayList<ClassDefinition>(classGroup.size());
+
+      for (Class<?> loadedClass : classGroup) {
+         byte[] modifiedClassfile = readAndModifyClassForCoverage(loadedClass);
+
+         if (modifiedClassfile != null) {
+            classDefs.add(new ClassDefinition(loadedClass, modifiedClassfile));
          }
       }
+
+      return classDefs;
    }
 
-   private void redefineClassForCoverage(Class<?> loadedClass)
+   private static List<ClassDefinition> waitForCompletion(Future<List<ClassDefinition>> modification)
    {
-      byte[] modifiedClassfile = readAndModifyClassForCoverage(loadedClass);
+      try {
+         return modification.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("Interrupted while modifying classes for coverage", e);
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+         if (cause instanceof Error) throw (Error) cause;
 
-      if (modifiedClassfile != null) {
-         redefineClassForCoverage(loadedClass, modifiedClassfile);
-         modifiedClasses.add(loadedClass.getName());
+         throw new RuntimeException(cause);
       }
    }
 
@@ -68,7 +165,7 @@ public final class ClassModification
    private byte[] modifyClassForCoverage(Class<?> aClass)
    {
       String className = aClass.getName();
-      byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className);
+      byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className, true);
 
       if (modifiedBytecode != null) {
          return modifiedBytecode;
@@ -76,28 +173,97 @@ public final class ClassModification
 
       ClassReader cr = CoverageModifier.createClassReader(aClass);
 
-      return cr == null ? null : modifyClassForCoverage(cr);
+      return cr == null ? null : modifyClassForCoverage(className, cr, true);
    }
 
-   private byte[] modifyClassForCoverage(ClassReader cr)
+   private byte[] modifyClassForCoverage(String className, ClassReader cr, boolean forRedefinition)
    {
-      CoverageModifier modifier = new CoverageModifier(cr);
+      if (classCache != null) {
+         byte[] cachedBytecode = classCache.getModifiedClass(className, cr.b);
+
+         if (cachedBytecode != null) {
+            return cachedBytecode;
+         }
+      }
+
+      CoverageModifier modifier = new CoverageModifier(cr, forRedefinition, classCache != null);
       cr.accept(modifier, 0);
-      return modifier.toByteArray();
+      byte[] modifiedBytecode = modifier.toByteArray();
+
+      if (classCache != null) {
+         classCache.addModifiedClass(modifier, modifiedBytecode);
+      }
+
+      return modifiedBytecode;
+   }
+
+   private void redefineClassesForCoverage(List<ClassDefinition> classDefs)
+   {
+      for (Class<?> redefinedClass : redefineClasses(classDefs)) {
+         modifiedClasses.add(redefinedClass.getName());
+      }
    }
 
-   private void redefineClassForCoverage(Class<?> loadedClass, byte[] modifiedClassfile)
+   /**
+    * Redefines the given classes with a single call if possible, or else one at a time, reporting each class which
+    * could not be redefined.
+    *
+    * @return the classes actually redefined
+    */
+   static List<Class<?>> redefineClasses(List<ClassDefinition> classDefs)
    {
-      ClassDefinition[] classDefs = {new ClassDefinition(loadedClass, modifiedClassfile)};
+      List<Class<?>> redefinedClasses = new ArrayList<Class<?>>(classDefs.size());
+
+      if (classDefs.isEmpty()) {
+         return redefinedClasses;
+      }
+
+      if (classDefs.size() > 1 && redefineClasses(classDefs.toArray(new ClassDefinition[classDefs.size()])) == null) {
+         for (ClassDefinition classDef : classDefs) {
+            redefinedClasses.add(classDef.getDefinitionClass());
+         }
+
+         return redefinedClasses;
+      }
+
+      for (ClassDefinition classDef : classDefs) {
+         Class<?> classToRedefine = classDef.getDefinitionClass();
+         Throwable failure = redefineClasses(classDef);
+
+         if (failure == null) {
+            redefinedClasses.add(classToRedefine);
+         }
+         else {
+            System.out.println(
+               "JMockit: Unable to redefine class " + classToRedefine.getName() + " for coverage: " + failure);
+         }
+      }
+
+      return redefinedClasses;
+   }
 
+   /**
+    * @return the reason why the classes could not be redefined, or {@code null} if they were
+    */
+   private static Throwable redefineClasses(ClassDefinition... classDefs)
+   {
       try {
          Startup.instrumentation().redefineClasses(classDefs);
+         return null;
       }
       catch (ClassNotFoundException e) {
-         throw new RuntimeException(e);
+         return e;
       }
       catch (UnmodifiableClassException e) {
-         throw new RuntimeException(e);
+         return e;
+      }
+      catch (LinkageError e) {
+         // Includes VerifyError and ClassFormatError.
+         return e;
+      }
+      catch (RuntimeException e) {
+         // Includes UnsupportedOperationException, for modified bytecode changing the schema of the class.
+         return e;
       }
    }
 
@@ -134,13 +300,13 @@ public final class ClassModification
 
    private byte[] modifyClassForCoverage(String className, byte[] classBytecode)
    {
-      byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className);
+      byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className, false);
 
       if (modifiedBytecode != null) {
          return modifiedBytecode;
       }
 
       ClassReader cr = new ClassReader(classBytecode);
-      return modifyClassForCoverage(cr);
+      return modifyClassForCoverage(className, cr, false);
    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.util.regex.*;
+
+/**
+ * Matches class names against one of the regular expressions given in the "<code>jmockit-coverage-classes</code>" and
+ * "<code>jmockit-coverage-excludes</code>" system properties.
+ * <p/>
+ * Such expressions are normally alternatives of class names and package prefixes, as in
+ * "<code>orderMngr\.domain\..+|orderMngr\.util\.Strings</code>".
+ * Those are compiled into a prefix trie, which matches a class name in a single pass over its characters; other
+ * expressions are matched as regular expressions.
+ * Instances can be used from multiple threads at the same time.
+ */
+final class ClassNameMatcher
+{
+   private final TrieNode trie;
+   private final Pattern pattern;
+
+   ClassNameMatcher(String regex)
+   {
+      TrieNode root = new TrieNode();
+
+      if (addAlternativesToTrie(root, regex)) {
+         trie = root;
+         pattern = null;
+      }
+      else {
+         trie = null;
+         pattern = Pattern.compile(regex);
+      }
+   }
+
+   private static boolean addAlternativesToTrie(TrieNode root, String regex)
+   {
+      for (String alternative : regex.split("\\|", -1)) {
+         if (!addAlternativeToTrie(root, alternative)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Adds an alternative consisting of literal characters (with "." and "$" escaped), optionally followed by "
+    * <code>.*</code>" or "<code>.+</code>".
+    *
+    * @return {@code false} if the alternative has any other form
+    */
+   private static boolean addAlternativeToTrie(TrieNode root, String alternative)
+   {
+      int length = alternative.length();
+      int minSuffixLength = -1;
+
+      if (alternative.endsWith(".*") || alternative.endsWith(".+")) {
+         minSuffixLength = alternative.charAt(length - 1) == '*' ? 0 : 1;
+         length -= 2;
+      }
+
+      TrieNode node = root;
+
+      for (int i = 0; i < length; i++) {
+         char c = alternative.charAt(i);
+
+         if (c == '\\') {
+            if (++i == length) {
+               return false;
+            }
+
+            c = alternative.charAt(i);
+
+            if (c != '.' && c != '$') {
+               return false;
+            }
+         }
+         else if (c == '$' || !Character.isJavaIdentifierPart(c)) {
+            return false;
+         }
+
+         node = node.getOrAddChild(c);
+      }
+
+      if (minSuffixLength < 0) {
+         node.endOfName = true;
+      }
+      else if (node.minSuffixLength < 0 || minSuffixLength < node.minSuffixLength) {
+         node.minSuffixLength = minSuffixLength;
+      }
+
+      return true;
+   }
+
+   boolean matches(String className)
+   {
+      if (trie == null) {
+         return pattern.matcher(className).matches();
+      }
+
+      TrieNode node = trie;
+      int length = className.length();
+
+      for (int i = 0; ; i++) {
+         if (node.minSuffixLength >= 0 && length - i >= node.minSuffixLength) {
+            return true;
+         }
+
+         if (i == length) {
+            return node.endOfName;
+         }
+
+         node = node.getChild(className.charAt(i));
+
+         if (node == null) {
+            return false;
+         }
+      }
+   }
+
+   private static final class TrieNode
+   {
+      private char[] chars = new char[0];
+      private TrieNode[] children = new TrieNode[0];
+
+      // Whether a name ends here, and the minimum number of characters allowed after a prefix ending here (-1 if none):
+      boolean endOfName;
+      int minSuffixLength = -1;
+
+      TrieNode getChild(char c)
+      {
+         for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) {
+               return children[i];
+            }
+         }
+
+         return null;
+      }
+
+      TrieNode getOrAddChild(char c)
+      {
+         TrieNode child = getChild(c);
+
+         if (child == null) {
+            int n = chars.length;
+
+            char[] newChars = new char[n + 1];
+            System.arraycopy(chars, 0, newChars, 0, n);
+            newChars[n] = c;
+            chars = newChars;
+
+            TrieNode[] newChildren = new TrieNode[n + 1];
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newChildren[n] = child = new TrieNode();
+            children = newChildren;
+         }
+
+         return child;
+      }
+   }
+}
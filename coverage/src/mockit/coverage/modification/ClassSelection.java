@@ -5,33 +5,42 @@
 package mockit.coverage.modification;
 
 import java.security.*;
-import java.util.regex.*;
+import java.util.concurrent.*;
 
 import mockit.coverage.standalone.*;
 
+/**
+ * Decides which classes get instrumented for coverage.
+ * Since this is done for every class loaded by the JVM, possibly from multiple threads at the same time, class names
+ * are matched without sharing any mutable state, and the decision for each code source location is computed only once.
+ */
 final class ClassSelection
 {
-   private final Matcher classesToInclude;
-   private final Matcher classesToExclude;
-   private final Matcher testCode;
+   private final ClassNameMatcher classesToInclude;
+   private final ClassNameMatcher classesToExclude;
+   private final boolean testRun;
+   private final ConcurrentMap<String, Boolean> locationsSelected;
 
    ClassSelection()
    {
       classesToInclude = getClassNameRegex("classes");
       classesToExclude = getClassNameRegex("excludes");
-      testCode = Startup.isTestRun() ? Pattern.compile(".+Test(\\$.+)?").matcher("") : null;
+      testRun = Startup.isTestRun();
+      locationsSelected = new ConcurrentHashMap<String, Boolean>();
    }
 
-   private Matcher getClassNameRegex(String propertySuffix)
+   private static ClassNameMatcher getClassNameRegex(String propertySuffix)
    {
       String regex = System.getProperty("jmockit-coverage-" + propertySuffix, "");
-      return regex.length() == 0 ? null : Pattern.compile(regex).matcher("");
+      return regex.length() == 0 ? null : new ClassNameMatcher(regex);
    }
 
    boolean isSelected(String className, ProtectionDomain protectionDomain)
    {
       CodeSource codeSource = protectionDomain.getCodeSource();
 
+      // JMockit classes (including those of the coverage tool itself) are never selected, regardless of the
+      // "classes" property; this lets the methods called from instrumented code do without a reentrancy guard.
       if (
          codeSource == null || className.charAt(0) == '[' || className.startsWith("mockit.") ||
          className.startsWith("org.junit.") || className.startsWith("junit.") || className.startsWith("org.testng.")
@@ -39,20 +48,63 @@ final class ClassSelection
          return false;
       }
 
-      if (classesToExclude != null && classesToExclude.reset(className).matches()) {
+      String location = codeSource.getLocation().getPath();
+      boolean locationSelected = isLocationSelected(location);
+
+      // Without an explicit set of classes to include, classes from a location not selected (such as a jar file) are
+      // rejected without matching their names.
+      if (classesToInclude == null && !locationSelected) {
+         return false;
+      }
+
+      if (classesToExclude != null && classesToExclude.matches(className)) {
          return false;
       }
-      else if (classesToInclude != null && classesToInclude.reset(className).matches()) {
+      else if (classesToInclude != null && classesToInclude.matches(className)) {
          return true;
       }
-      else if (testCode != null && testCode.reset(className).matches()) {
+      else if (testRun && isTestClassName(className)) {
          return false;
       }
 
-      String location = codeSource.getLocation().getPath();
+      return locationSelected;
+   }
+
+   private boolean isLocationSelected(String location)
+   {
+      Boolean selected = locationsSelected.get(location);
+
+      if (selected == null) {
+         selected =
+            !location.endsWith(".jar") && !location.endsWith("/.cp/") &&
+            (!testRun || !location.endsWith("/test-classes/") && !location.endsWith("/jmockit/main/classes/"));
+         locationsSelected.put(location, selected);
+      }
 
-      return
-         !location.endsWith(".jar") && !location.endsWith("/.cp/") &&
-         (testCode == null || !location.endsWith("/test-classes/") && !location.endsWith("/jmockit/main/classes/"));
+      return selected;
+   }
+
+   /**
+    * Returns whether the class is a test class or nested in one, that is, whether its name matches
+    * "<code>.+Test(\$.+)?</code>".
+    */
+   private static boolean isTestClassName(String className)
+   {
+      if (endsWithTest(className, className.length())) {
+         return true;
+      }
+
+      for (int p = className.indexOf('$'); p >= 0 && p < className.length() - 1; p = className.indexOf('$', p + 1)) {
+         if (endsWithTest(className, p)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static boolean endsWithTest(String className, int endIndex)
+   {
+      return endIndex > 4 && className.startsWith("Test", endIndex - 4);
    }
 }
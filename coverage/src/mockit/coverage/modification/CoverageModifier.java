@@ -6,6 +6,7 @@ package mockit.coverage.modification;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static mockit.external.asm4.Opcodes.*;
 
@@ -17,14 +18,42 @@ import mockit.external.asm4.*;
 
 final class CoverageModifier extends ClassVisitor
 {
-   private static final Map<String, CoverageModifier> INNER_CLASS_MODIFIERS = new HashMap<String, CoverageModifier>();
+   private static final Map<String, CoverageModifier> INNER_CLASS_MODIFIERS =
+      new ConcurrentHashMap<String, CoverageModifier>();
    private static final int FIELD_MODIFIERS_TO_IGNORE = ACC_FINAL + ACC_SYNTHETIC;
    private static final int MAX_CONDITIONS = Integer.getInteger("jmockit-coverage-maxConditions", 10);
+   private static final boolean WITH_PROBE_ARRAYS = "arrays".equals(System.getProperty("jmockit-coverage-engine"));
+   private static final String PROBE_ARRAY_FIELD = "$jmockitCoverageProbes";
+   private static final String PROBE_ARRAY_CLASS = "java/util/concurrent/atomic/AtomicIntegerArray";
+   private static final String PROBE_ARRAY_DESC = 'L' + PROBE_ARRAY_CLASS + ';';
+   private static final String DATA_RECORDING_CLASS = "mockit/coverage/TestRun";
 
-   static byte[] recoverModifiedByteCodeIfAvailable(String innerClassName)
+   static byte[] recoverModifiedByteCodeIfAvailable(String innerClassName, boolean forRedefinition)
    {
       CoverageModifier modifier = INNER_CLASS_MODIFIERS.remove(innerClassName);
-      return modifier == null ? null : modifier.toByteArray();
+
+      // A class already loaded cannot be redefined with a new field, as required for the probe array.
+      if (modifier == null || forRedefinition && modifier.probeArray != null) {
+         return null;
+      }
+
+      return modifier.toByteArray();
+   }
+
+   /**
+    * Describes the settings affecting how classes get instrumented, so that classes instrumented with different
+    * settings are told apart in the {@linkplain InstrumentedClassCache cache}.
+    */
+   static String describeSettings()
+   {
+      StringBuilder settings = new StringBuilder();
+
+      for (Metrics metric : Metrics.values()) {
+         settings.append(metric).append('=').append(metric.isActive()).append(',');
+      }
+
+      return settings.append("maxConditions=").append(MAX_CONDITIONS).append(",arrays=").append(WITH_PROBE_ARRAYS)
+         .toString();
    }
 
    static ClassReader createClassReader(Class<?> aClass)
@@ -44,28 +73,77 @@ final class CoverageModifier extends ClassVisitor
       try { return new ClassReader(classFile); } catch (IOException ignore) { return null; }
    }
 
+   private final ClassReader classReader;
    private String internalClassName;
    private String simpleClassName;
    private String sourceFileName;
    private FileCoverageData fileData;
+   private boolean fileDataCreated;
    private boolean cannotModify;
    private final boolean forInnerClass;
+   private final boolean forRedefinition;
+   private final boolean forCaching;
+   private final List<CoverageModifier> nestedClassModifiers;
    private boolean forEnumClass;
-
-   CoverageModifier(ClassReader cr)
+   private String modifiedClassName;
+   private boolean withProbeArray;
+   private ProbeArray probeArray;
+   private boolean staticInitializerFound;
+
+   /**
+    * @param forCaching whether the modified class may be stored in the {@linkplain InstrumentedClassCache cache}, in
+    *                   which case the file index passed to probes always comes from the constant pool
+    */
+   CoverageModifier(ClassReader cr, boolean forRedefinition, boolean forCaching)
    {
       super(new ClassWriter(cr, ClassWriter.COMPUTE_MAXS));
+      classReader = cr;
       forInnerClass = false;
+      this.forRedefinition = forRedefinition;
+      this.forCaching = forCaching;
+      nestedClassModifiers = new ArrayList<CoverageModifier>();
    }
 
    private CoverageModifier(ClassReader cr, CoverageModifier other, String simpleClassName)
    {
       super(new ClassWriter(cr, ClassWriter.COMPUTE_MAXS));
+      classReader = cr;
       sourceFileName = other.sourceFileName;
       fileData = other.fileData;
       internalClassName = other.internalClassName;
       this.simpleClassName = simpleClassName;
       forInnerClass = true;
+      forRedefinition = other.forRedefinition;
+      forCaching = other.forCaching;
+      nestedClassModifiers = Collections.emptyList();
+   }
+
+   String getClassName() { return modifiedClassName.replace('/', '.'); }
+   byte[] getOriginalClassfile() { return classReader.b; }
+   String getSourceFileName() { return sourceFileName; }
+   FileCoverageData getFileData() { return fileData; }
+   List<CoverageModifier> getNestedClassModifiers() { return nestedClassModifiers; }
+
+   /**
+    * Whether the modified class, together with the nested classes modified along with it, can be stored in the cache.
+    * This requires that the coverage data for the source file was created by this modification, so that it contains
+    * nothing from other classes; also, probe arrays are not supported.
+    * The file index must fit in a short, since integer operands up to that value get pushed with <code>SIPUSH</code>
+    * and therefore never share the constant pool entry which gets replaced when the class is loaded from the cache.
+    */
+   boolean isCacheable()
+   {
+      if (!forCaching || !fileDataCreated || probeArray != null || fileData.getIndex() > Short.MAX_VALUE) {
+         return false;
+      }
+
+      for (CoverageModifier nestedClassModifier : nestedClassModifiers) {
+         if (nestedClassModifier.probeArray != null) {
+            return false;
+         }
+      }
+
+      return true;
    }
 
    @Override
@@ -76,8 +154,18 @@ final class CoverageModifier extends ClassVisitor
       }
 
       forEnumClass = (access & ACC_ENUM) != 0;
+      modifiedClassName = name;
 
-      if (!forInnerClass) {
+      // Probe arrays are held in a new static field, which cannot be added to interfaces or already loaded classes;
+      // also, call points can only be obtained when execution counts are registered through TestRun.
+      withProbeArray =
+         WITH_PROBE_ARRAYS && !forRedefinition && (access & ACC_INTERFACE) == 0 &&
+         !CoverageData.instance().isWithCallPoints();
+
+      if (forInnerClass) {
+         addProbeArrayIfApplicable();
+      }
+      else {
          internalClassName = name;
          int p = name.lastIndexOf('/');
 
@@ -112,12 +200,22 @@ final class CoverageModifier extends ClassVisitor
          }
 
          sourceFileName += file;
-         fileData = CoverageData.instance().addFile(sourceFileName);
+         CoverageData coverageData = CoverageData.instance();
+         fileDataCreated = coverageData.getFileData(sourceFileName) == null;
+         fileData = coverageData.addFile(sourceFileName);
+         addProbeArrayIfApplicable();
       }
 
       super.visitSource(file, debug);
    }
 
+   private void addProbeArrayIfApplicable()
+   {
+      if (withProbeArray) {
+         probeArray = fileData.lineCoverageInfo.addProbeArray();
+      }
+   }
+
    @Override
    public void visitInnerClass(String internalName, String outerName, String innerName, int access)
    {
@@ -139,6 +237,7 @@ final class CoverageModifier extends ClassVisitor
          CoverageModifier innerClassModifier = new CoverageModifier(innerCR, this, innerName);
          innerCR.accept(innerClassModifier, 0);
          INNER_CLASS_MODIFIERS.put(innerClassName, innerClassModifier);
+         nestedClassModifiers.add(innerClassModifier);
       }
    }
 
@@ -182,7 +281,14 @@ final class CoverageModifier extends ClassVisitor
 
       if (name.charAt(0) == '<') {
          if (name.charAt(1) == 'c') {
-            return forEnumClass ? mv : new StaticBlockModifier(mv);
+            MethodVisitor staticBlockVisitor = forEnumClass ? mv : new StaticBlockModifier(mv);
+
+            if (probeArray != null) {
+               staticInitializerFound = true;
+               return new ProbeArrayInitializer(staticBlockVisitor, mv);
+            }
+
+            return staticBlockVisitor;
          }
 
          if (withPathOrDataCoverage) {
@@ -193,13 +299,71 @@ final class CoverageModifier extends ClassVisitor
       return withPathOrDataCoverage ? new MethodModifier(mv, name) : new BaseMethodModifier(mv);
    }
 
-   private class BaseMethodModifier extends MethodVisitor
+   @Override
+   public void visitEnd()
+   {
+      if (probeArray != null) {
+         int access = ACC_PRIVATE + ACC_STATIC + ACC_FINAL + ACC_SYNTHETIC;
+         cv.visitField(access, PROBE_ARRAY_FIELD, PROBE_ARRAY_DESC, null, null);
+
+         if (!staticInitializerFound) {
+            MethodVisitor mv = cv.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+            generateProbeArrayInitialization(mv);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+         }
+      }
+
+      super.visitEnd();
+   }
+
+   private void generateProbeArrayInitialization(MethodVisitor mv)
+   {
+      generateCodeToPushInteger(mv, fileData.getIndex());
+      generateCodeToPushInteger(mv, probeArray.getIndex());
+      mv.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "getProbeArray", "(II)" + PROBE_ARRAY_DESC);
+      mv.visitFieldInsn(PUTSTATIC, modifiedClassName, PROBE_ARRAY_FIELD, PROBE_ARRAY_DESC);
+   }
+
+   private static void generateCodeToPushInteger(MethodVisitor mv, int value)
    {
-      static final String DATA_RECORDING_CLASS = "mockit/coverage/TestRun";
+      if (value <= Short.MAX_VALUE) {
+         mv.visitIntInsn(SIPUSH, value);
+      }
+      else {
+         mv.visitLdcInsn(value);
+      }
+   }
+
+   /**
+    * Initializes the probe array field at the very beginning of the static initializer, before any probe in the class
+    * can be executed.
+    */
+   private final class ProbeArrayInitializer extends MethodVisitor
+   {
+      private final MethodVisitor mw;
+
+      ProbeArrayInitializer(MethodVisitor staticBlockVisitor, MethodVisitor mw)
+      {
+         super(staticBlockVisitor);
+         this.mw = mw;
+      }
 
+      @Override
+      public void visitCode()
+      {
+         generateProbeArrayInitialization(mw);
+         super.visitCode();
+      }
+   }
+
+   private class BaseMethodModifier extends MethodVisitor
+   {
       final MethodWriter mw;
-      final List<Label> visitedLabels;
-      final List<Label> jumpTargetsForCurrentLine;
+      final Set<Label> visitedLabels;
+      private final Map<Label, Integer> jumpTargetsForCurrentLine;
+      private int jumpCountForCurrentLine;
       private final Map<Label, Label> unconditionalJumps;
       final Map<Integer, Boolean> pendingBranches;
       int currentLine;
@@ -212,8 +376,10 @@ final class CoverageModifier extends ClassVisitor
       {
          super(mv);
          mw = (MethodWriter) mv;
-         visitedLabels = new ArrayList<Label>();
-         jumpTargetsForCurrentLine = new ArrayList<Label>(4);
+         // Labels don't override equals/hashCode, so these are identity-based, with constant-time lookups even for
+         // methods with thousands of labels.
+         visitedLabels = new HashSet<Label>();
+         jumpTargetsForCurrentLine = new HashMap<Label, Integer>(4);
          unconditionalJumps = new HashMap<Label, Label>(2);
          pendingBranches = new HashMap<Integer, Boolean>();
       }
@@ -229,6 +395,7 @@ final class CoverageModifier extends ClassVisitor
          currentLine = line;
 
          jumpTargetsForCurrentLine.clear();
+         jumpCountForCurrentLine = 0;
          nextLabelAfterConditionalJump = false;
          unconditionalJumps.clear();
 
@@ -239,20 +406,36 @@ final class CoverageModifier extends ClassVisitor
 
       private void generateCallToRegisterLineExecution()
       {
-         mw.visitLdcInsn(sourceFileName);
+         if (probeArray != null) {
+            int slot = probeArray.addLineProbe(lineData);
+            generateCodeToIncrementProbe(slot);
+            return;
+         }
+
+         pushFileIndexOnTheStack();
          pushCurrentLineOnTheStack();
-         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "lineExecuted", "(Ljava/lang/String;I)V");
+         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "lineExecuted", "(II)V");
+      }
+
+      private void generateCodeToIncrementProbe(int slot)
+      {
+         mw.visitFieldInsn(GETSTATIC, modifiedClassName, PROBE_ARRAY_FIELD, PROBE_ARRAY_DESC);
+         generateCodeToPushInteger(mw, slot);
+         mw.visitMethodInsn(INVOKEVIRTUAL, PROBE_ARRAY_CLASS, "incrementAndGet", "(I)I");
+         mw.visitInsn(POP);
       }
 
-      private void pushCurrentLineOnTheStack()
+      final void pushFileIndexOnTheStack()
       {
-         if (currentLine <= Short.MAX_VALUE) {
-            mw.visitIntInsn(SIPUSH, currentLine);
+         if (forCaching) {
+            // Always loaded from the constant pool, where it gets replaced when the class is loaded from the cache.
+            mw.visitLdcInsn(fileData.getIndex());
          }
          else {
-            mw.visitLdcInsn(currentLine);
+            generateCodeToPushInteger(mw, fileData.getIndex());
          }
       }
+      private void pushCurrentLineOnTheStack() { generateCodeToPushInteger(mw, currentLine); }
 
       @Override
       public void visitJumpInsn(int opcode, Label label)
@@ -263,7 +446,12 @@ final class CoverageModifier extends ClassVisitor
             return;
          }
 
-         jumpTargetsForCurrentLine.add(label);
+         // Each target is identified by the index of the first jump to it in the current line.
+         if (!jumpTargetsForCurrentLine.containsKey(label)) {
+            jumpTargetsForCurrentLine.put(label, jumpCountForCurrentLine);
+         }
+
+         jumpCountForCurrentLine++;
          nextLabelAfterConditionalJump = isConditionalJump(opcode);
 
          if (nextLabelAfterConditionalJump) {
@@ -309,11 +497,11 @@ final class CoverageModifier extends ClassVisitor
 
             if (firstInsnAfterJump) {
                branchData.setHasJumpTarget();
-               generateCallToRegisterBranchTargetExecution("jumpTargetExecuted", branchIndex);
+               generateCallToRegisterBranchTargetExecution(true, branchIndex);
             }
             else {
                branchData.setHasNoJumpTarget();
-               generateCallToRegisterBranchTargetExecution("noJumpTargetExecuted", branchIndex);
+               generateCallToRegisterBranchTargetExecution(false, branchIndex);
             }
          }
 
@@ -327,9 +515,9 @@ final class CoverageModifier extends ClassVisitor
          mw.visitLabel(label);
 
          if (nextLabelAfterConditionalJump) {
-            int branchIndex = jumpTargetsForCurrentLine.indexOf(label);
+            Integer branchIndex = jumpTargetsForCurrentLine.get(label);
 
-            if (branchIndex >= 0) {
+            if (branchIndex != null) {
                pendingBranches.put(branchIndex, true);
                assertFoundInCurrentLine = false;
             }
@@ -343,16 +531,24 @@ final class CoverageModifier extends ClassVisitor
             int branchIndex = lineData.addBranch(unconditionalJumpSource, label);
             BranchCoverageData branchData = lineData.getBranchData(branchIndex);
             branchData.setHasJumpTarget();
-            generateCallToRegisterBranchTargetExecution("jumpTargetExecuted", branchIndex);
+            generateCallToRegisterBranchTargetExecution(true, branchIndex);
          }
       }
 
-      private void generateCallToRegisterBranchTargetExecution(String methodName, int branchIndex)
+      private void generateCallToRegisterBranchTargetExecution(boolean jumpTarget, int branchIndex)
       {
-         mw.visitLdcInsn(sourceFileName);
+         if (probeArray != null) {
+            BranchCoverageData branchData = lineData.getBranchData(branchIndex);
+            int slot = probeArray.addBranchProbe(branchData, jumpTarget);
+            generateCodeToIncrementProbe(slot);
+            return;
+         }
+
+         String methodName = jumpTarget ? "jumpTargetExecuted" : "noJumpTargetExecuted";
+         pushFileIndexOnTheStack();
          pushCurrentLineOnTheStack();
          mw.visitIntInsn(SIPUSH, branchIndex);
-         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, methodName, "(Ljava/lang/String;II)V");
+         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, methodName, "(III)V");
       }
 
       @Override
@@ -446,25 +642,27 @@ final class CoverageModifier extends ClassVisitor
    private class MethodOrConstructorModifier extends BaseMethodModifier
    {
       private final String methodOrConstructorName;
-      private NodeBuilder nodeBuilder;
+      private final NodeBuilder nodeBuilder;
       private Label entryPoint;
       private int jumpCount;
 
-      MethodOrConstructorModifier(MethodVisitor mv, String methodOrConstructorName)
+      // For constructors, the catch-all handler only starts once "this" is initialized, by the call to another
+      // constructor which is not preceded by a matching "new" instruction.
+      private boolean thisInitialized;
+      private int pendingNewInstructions;
+      private Label exceptionHandlerStart;
+
+      MethodOrConstructorModifier(MethodVisitor mv, String methodOrConstructorName, boolean forConstructor)
       {
          super(mv);
          this.methodOrConstructorName = methodOrConstructorName;
          nodeBuilder = new NodeBuilder();
+         thisInitialized = !forConstructor;
       }
 
       @Override
       public final void visitLabel(Label label)
       {
-         if (nodeBuilder == null) {
-            super.visitLabel(label);
-            return;
-         }
-
          int line = label.line;
 
          if (entryPoint == null) {
@@ -473,6 +671,10 @@ final class CoverageModifier extends ClassVisitor
             mw.visitLineNumber(line, entryPoint);
             nodeBuilder.handleEntry(line);
             generateCallToRegisterNodeReached(0);
+
+            if (thisInitialized) {
+               startExceptionHandlerRange();
+            }
          }
 
          super.visitLabel(label);
@@ -482,47 +684,79 @@ final class CoverageModifier extends ClassVisitor
       }
 
       private void generateCallToRegisterNodeReached(int nodeIndex)
+      {
+         generateCallToRegisterNode("nodeReached", nodeIndex);
+      }
+
+      private void generateCallToRegisterNode(String methodToCall, int nodeIndex)
       {
          if (nodeIndex >= 0) {
-            mw.visitLdcInsn(sourceFileName);
-            mw.visitLdcInsn(nodeBuilder.firstLine);
-            mw.visitIntInsn(SIPUSH, nodeIndex);
-            mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "nodeReached", "(Ljava/lang/String;II)V");
+            pushFileIndexOnTheStack();
+            generateCodeToPushInteger(mw, nodeBuilder.firstLine);
+            generateCodeToPushInteger(mw, nodeIndex);
+            mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, methodToCall, "(III)V");
          }
       }
 
+      private void startExceptionHandlerRange()
+      {
+         exceptionHandlerStart = new Label();
+         mw.visitLabel(exceptionHandlerStart);
+      }
+
+      /**
+       * Generates a catch-all handler for the whole method body, added after any other handler in the method, which
+       * reports the exception propagating out of the current execution and then rethrows it.
+       * This lets the execution's path frame be discarded, even when the exception comes from a called method, so that
+       * frames are never left behind for a later execution to find.
+       */
+      private void generateExceptionHandlerToDiscardPathFrame()
+      {
+         Label end = new Label();
+         mw.visitLabel(end);
+
+         Label handler = new Label();
+         mw.visitTryCatchBlock(exceptionHandlerStart, end, handler, null);
+         mw.visitLabel(handler);
+         pushFileIndexOnTheStack();
+         generateCodeToPushInteger(mw, nodeBuilder.firstLine);
+         mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "exceptionPropagated", "(II)V");
+         mw.visitInsn(ATHROW);
+      }
+
       @Override
       public final void visitJumpInsn(int opcode, Label label)
       {
-         if (nodeBuilder == null || entryPoint == null || visitedLabels.contains(label)) {
+         if (entryPoint == null || visitedLabels.contains(label)) {
             super.visitJumpInsn(opcode, label);
             return;
          }
 
          boolean conditional = isConditionalJump(opcode);
 
-         if (conditional && ++jumpCount > MAX_CONDITIONS) {
-            nodeBuilder = null;
-         }
-         else {
-            int nodeIndex = nodeBuilder.handleJump(label, currentLine, conditional);
-            generateCallToRegisterNodeReached(nodeIndex);
+         if (conditional) {
+            jumpCount++;
          }
 
+         int nodeIndex = nodeBuilder.handleJump(label, currentLine, conditional);
+         generateCallToRegisterNodeReached(nodeIndex);
+
          super.visitJumpInsn(opcode, label);
       }
 
       @Override
       public final void visitInsn(int opcode)
       {
-         if (nodeBuilder != null) {
-            if (opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW) {
-               int newNodeIndex = nodeBuilder.handleExit(currentLine);
-               generateCallToRegisterNodeReached(newNodeIndex);
-            }
-            else {
-               handleRegularInstruction(opcode);
-            }
+         if (opcode >= IRETURN && opcode <= RETURN) {
+            int newNodeIndex = nodeBuilder.handleExit(currentLine);
+            generateCallToRegisterNodeReached(newNodeIndex);
+         }
+         else if (opcode == ATHROW) {
+            int newNodeIndex = nodeBuilder.handleExit(currentLine);
+            generateCallToRegisterNode("throwReached", newNodeIndex);
+         }
+         else {
+            handleRegularInstruction(opcode);
          }
 
          super.visitInsn(opcode);
@@ -530,10 +764,8 @@ final class CoverageModifier extends ClassVisitor
 
       private void handleRegularInstruction(int opcode)
       {
-         if (nodeBuilder != null) {
-            int nodeIndex = nodeBuilder.handleRegularInstruction(currentLine, opcode);
-            generateCallToRegisterNodeReached(nodeIndex);
-         }
+         int nodeIndex = nodeBuilder.handleRegularInstruction(currentLine, opcode);
+         generateCallToRegisterNodeReached(nodeIndex);
       }
 
       @Override
@@ -560,6 +792,10 @@ final class CoverageModifier extends ClassVisitor
       @Override
       public final void visitTypeInsn(int opcode, String desc)
       {
+         if (opcode == NEW && !thisInitialized) {
+            pendingNewInstructions++;
+         }
+
          super.visitTypeInsn(opcode, desc);
          handleRegularInstruction(opcode);
       }
@@ -584,22 +820,21 @@ final class CoverageModifier extends ClassVisitor
          boolean isStatic = opcode == PUTSTATIC || opcode == GETSTATIC;
          char fieldType = desc.charAt(0);
          boolean size2 = fieldType == 'J' || fieldType == 'D';
-         String classAndFieldNames = null;
-         boolean fieldHasData = false;
+         int fieldIndex = -1;
 
          if (!owner.startsWith("java/")) {
-            classAndFieldNames = owner.substring(owner.lastIndexOf('/') + 1) + '.' + name;
-            fieldHasData = fileData.dataCoverageInfo.isFieldWithCoverageData(classAndFieldNames);
+            String classAndFieldNames = owner.substring(owner.lastIndexOf('/') + 1) + '.' + name;
+            fieldIndex = fileData.dataCoverageInfo.getFieldIndex(classAndFieldNames);
 
-            if (fieldHasData && !isStatic) {
+            if (fieldIndex >= 0 && !isStatic) {
                generateCodeToSaveInstanceReferenceOnTheStack(getField, size2);
             }
          }
 
          super.visitFieldInsn(opcode, owner, name, desc);
 
-         if (fieldHasData) {
-            generateCallToRegisterFieldCoverage(getField, isStatic, size2, classAndFieldNames);
+         if (fieldIndex >= 0) {
+            generateCallToRegisterFieldCoverage(getField, isStatic, size2, fieldIndex);
          }
 
          handleRegularInstruction(opcode);
@@ -627,7 +862,7 @@ final class CoverageModifier extends ClassVisitor
       }
 
       private void generateCallToRegisterFieldCoverage(
-         boolean getField, boolean isStatic, boolean size2, String classAndFieldNames)
+         boolean getField, boolean isStatic, boolean size2, int fieldIndex)
       {
          if (!isStatic && getField) {
             if (size2) {
@@ -640,13 +875,11 @@ final class CoverageModifier extends ClassVisitor
             }
          }
 
-         mw.visitLdcInsn(sourceFileName);
-         mw.visitLdcInsn(classAndFieldNames);
+         pushFileIndexOnTheStack();
+         generateCodeToPushInteger(mw, fieldIndex);
 
          String methodToCall = getField ? "fieldRead" : "fieldAssigned";
-         String methodDesc =
-            isStatic ?
-               "(Ljava/lang/String;Ljava/lang/String;)V" : "(Ljava/lang/Object;Ljava/lang/String;Ljava/lang/String;)V";
+         String methodDesc = isStatic ? "(II)V" : "(Ljava/lang/Object;II)V";
 
          mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, methodToCall, methodDesc);
       }
@@ -655,6 +888,20 @@ final class CoverageModifier extends ClassVisitor
       public final void visitMethodInsn(int opcode, String owner, String name, String desc)
       {
          super.visitMethodInsn(opcode, owner, name, desc);
+
+         if (!thisInitialized && opcode == INVOKESPECIAL && "<init>".equals(name)) {
+            if (pendingNewInstructions > 0) {
+               pendingNewInstructions--;
+            }
+            else {
+               thisInitialized = true;
+
+               if (entryPoint != null) {
+                  startExceptionHandlerRange();
+               }
+            }
+         }
+
          handleRegularInstruction(opcode);
       }
 
@@ -668,10 +915,8 @@ final class CoverageModifier extends ClassVisitor
       @Override
       public final void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels)
       {
-         if (nodeBuilder != null) {
-            int nodeIndex = nodeBuilder.handleForwardJumpsToNewTargets(dflt, labels, currentLine);
-            generateCallToRegisterNodeReached(nodeIndex);
-         }
+         int nodeIndex = nodeBuilder.handleForwardJumpsToNewTargets(dflt, labels, currentLine);
+         generateCallToRegisterNodeReached(nodeIndex);
 
          super.visitLookupSwitchInsn(dflt, keys, labels);
       }
@@ -679,10 +924,8 @@ final class CoverageModifier extends ClassVisitor
       @Override
       public final void visitTableSwitchInsn(int min, int max, Label dflt, Label[] labels)
       {
-         if (nodeBuilder != null) {
-            int nodeIndex = nodeBuilder.handleForwardJumpsToNewTargets(dflt, labels, currentLine);
-            generateCallToRegisterNodeReached(nodeIndex);
-         }
+         int nodeIndex = nodeBuilder.handleForwardJumpsToNewTargets(dflt, labels, currentLine);
+         generateCallToRegisterNodeReached(nodeIndex);
 
          super.visitTableSwitchInsn(min, max, dflt, labels);
       }
@@ -694,12 +937,23 @@ final class CoverageModifier extends ClassVisitor
          handleRegularInstruction(MULTIANEWARRAY);
       }
 
+      @Override
+      public final void visitMaxs(int maxStack, int maxLocals)
+      {
+         if (exceptionHandlerStart != null) {
+            generateExceptionHandlerToDiscardPathFrame();
+         }
+
+         super.visitMaxs(maxStack, maxLocals);
+      }
+
       @Override
       public final void visitEnd()
       {
-         if (currentLine > 0 && nodeBuilder != null) {
+         if (currentLine > 0) {
             MethodCoverageData methodData = new MethodCoverageData(methodOrConstructorName);
-            methodData.buildPaths(currentLine, nodeBuilder);
+            // Methods with many conditions can have too many paths to be built in advance, so they only get counted.
+            methodData.buildPaths(currentLine, nodeBuilder, jumpCount <= MAX_CONDITIONS);
             fileData.addMethod(methodData);
          }
       }
@@ -707,7 +961,7 @@ final class CoverageModifier extends ClassVisitor
 
    private final class MethodModifier extends MethodOrConstructorModifier
    {
-      MethodModifier(MethodVisitor mv, String methodName) { super(mv, methodName); }
+      MethodModifier(MethodVisitor mv, String methodName) { super(mv, methodName, false); }
 
       @Override
       public AnnotationVisitor visitAnnotation(String desc, boolean visible)
@@ -724,7 +978,7 @@ final class CoverageModifier extends ClassVisitor
 
    private final class ConstructorModifier extends MethodOrConstructorModifier
    {
-      ConstructorModifier(MethodVisitor mv) { super(mv, simpleClassName); }
+      ConstructorModifier(MethodVisitor mv) { super(mv, simpleClassName, true); }
    }
 
    private final class StaticBlockModifier extends BaseMethodModifier
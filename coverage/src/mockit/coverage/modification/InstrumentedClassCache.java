@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.net.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import mockit.coverage.data.*;
+import mockit.external.asm4.*;
+
+/**
+ * A directory holding classes instrumented for coverage in previous test runs, together with the coverage data created
+ * while instrumenting them, so that unchanged classes can be loaded in later test runs without being instrumented again
+ * (see the "<code>jmockit-coverage-cacheDir</code>" system property).
+ * <p/>
+ * Each entry holds a top-level class and the nested classes instrumented along with it, in a file named after a hash of
+ * the original classfile and of the settings affecting instrumentation.
+ * Since the coverage data of a source file is shared by all of its classes, only classes which are the first ones
+ * instrumented from their source file get stored, and entries are only used while no data exists for the source file.
+ * <p/>
+ * Instrumented code identifies the source file through an index which is only valid in the JVM where the data was
+ * created, so each entry also records the position of this index in the constant pool of each class, to be replaced
+ * with the new index when the entry is loaded.
+ */
+final class InstrumentedClassCache
+{
+   private static final int CONSTANT_INTEGER = 3;
+
+   static InstrumentedClassCache createIfEnabled()
+   {
+      String cacheDirPath = System.getProperty("jmockit-coverage-cacheDir", "");
+
+      if (cacheDirPath.length() == 0) {
+         return null;
+      }
+
+      File cacheDir = new File(cacheDirPath);
+      //noinspection ResultOfMethodCallIgnored
+      cacheDir.mkdirs();
+
+      return cacheDir.isDirectory() ? new InstrumentedClassCache(cacheDir) : null;
+   }
+
+   private final File cacheDir;
+   private final byte[] settings;
+   private final Map<String, byte[]> nestedClassesFromCache;
+
+   private InstrumentedClassCache(File cacheDir)
+   {
+      this.cacheDir = cacheDir;
+      settings = describeSettings();
+      nestedClassesFromCache = new ConcurrentHashMap<String, byte[]>();
+   }
+
+   /**
+    * Describes the instrumentation settings, including the version of the coverage tool (given by the location and
+    * last modification time of the class doing the instrumentation).
+    */
+   private static byte[] describeSettings()
+   {
+      URL instrumenterClass = CoverageModifier.class.getResource("CoverageModifier.class");
+      long instrumenterVersion;
+
+      try {
+         instrumenterVersion = instrumenterClass.openConnection().getLastModified();
+      }
+      catch (IOException ignore) {
+         instrumenterVersion = System.currentTimeMillis();
+      }
+
+      String settings = CoverageModifier.describeSettings() + ',' + instrumenterClass + ',' + instrumenterVersion;
+
+      try { return settings.getBytes("UTF-8"); } catch (UnsupportedEncodingException e) { throw new Error(e); }
+   }
+
+   /**
+    * Returns the instrumented version of the given class, if available from the cache.
+    * For a top-level class, the coverage data for its source file gets added as well.
+    *
+    * @return the instrumented classfile, or {@code null} if the class is not in the cache or cannot be loaded from it
+    */
+   byte[] getModifiedClass(String className, byte[] originalClassfile)
+   {
+      byte[] nestedClassfile = nestedClassesFromCache.remove(className);
+
+      if (nestedClassfile != null) {
+         return nestedClassfile;
+      }
+
+      File entryFile = getEntryFile(originalClassfile);
+
+      if (!entryFile.isFile()) {
+         return null;
+      }
+
+      try {
+         return loadEntry(entryFile, className);
+      }
+      catch (IOException ignore) {
+         // An unreadable entry is treated as absent, and gets replaced once the class is instrumented again.
+         return null;
+      }
+   }
+
+   private File getEntryFile(byte[] originalClassfile)
+   {
+      MessageDigest digest = createDigest();
+      digest.update(settings);
+      digest.update(originalClassfile);
+
+      byte[] hash = digest.digest();
+      StringBuilder entryName = new StringBuilder(2 * hash.length + 13);
+
+      for (byte b : hash) {
+         entryName.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return new File(cacheDir, entryName.append(".instrumented").toString());
+   }
+
+   private static MessageDigest createDigest()
+   {
+      try { return MessageDigest.getInstance("SHA-1"); } catch (NoSuchAlgorithmException e) { throw new Error(e); }
+   }
+
+   private byte[] loadEntry(File entryFile, String className) throws IOException
+   {
+      FileInputStream input = new FileInputStream(entryFile);
+
+      try {
+         CoverageInput in = new CoverageInput(input.getChannel());
+
+         if (!in.readHeader()) {
+            return null;
+         }
+
+         String sourceFile = in.readString();
+
+         if (CoverageData.instance().getFileData(sourceFile) != null) {
+            return null;
+         }
+
+         int classCount = in.readInt();
+         String[] classNames = new String[classCount];
+         byte[][] classfiles = new byte[classCount][];
+         int[] fileIndexOffsets = new int[classCount];
+
+         for (int i = 0; i < classCount; i++) {
+            classNames[i] = in.readString();
+
+            // Nested classes are read from their own ".class" files, which may have changed since the entry was stored.
+            if (i > 0 && !Arrays.equals(in.readByteArray(), hashOfNestedClass(classNames[i]))) {
+               return null;
+            }
+
+            classfiles[i] = in.readByteArray();
+            fileIndexOffsets[i] = in.readSignedInt();
+         }
+
+         if (!className.equals(classNames[0])) {
+            return null;
+         }
+
+         FileCoverageData fileData = new FileCoverageData();
+         fileData.readFrom(in);
+
+         if (!CoverageData.instance().addFile(sourceFile, fileData)) {
+            return null;
+         }
+
+         for (int i = 0; i < classCount; i++) {
+            replaceFileIndex(classfiles[i], fileIndexOffsets[i], fileData.getIndex());
+         }
+
+         for (int i = 1; i < classCount; i++) {
+            nestedClassesFromCache.put(classNames[i], classfiles[i]);
+         }
+
+         return classfiles[0];
+      }
+      finally {
+         input.close();
+      }
+   }
+
+   private static byte[] hashOfNestedClass(String className) throws IOException
+   {
+      String classFileName = className.replace('.', '/') + ".class";
+      InputStream classFile = CoverageModifier.class.getClassLoader().getResourceAsStream(classFileName);
+
+      if (classFile == null) {
+         return null;
+      }
+
+      MessageDigest digest = createDigest();
+
+      try {
+         byte[] buffer = new byte[8192];
+
+         for (int n = classFile.read(buffer); n >= 0; n = classFile.read(buffer)) {
+            digest.update(buffer, 0, n);
+         }
+      }
+      finally {
+         classFile.close();
+      }
+
+      return digest.digest();
+   }
+
+   private static void replaceFileIndex(byte[] classfile, int offset, int fileIndex)
+   {
+      if (offset > 0) {
+         classfile[offset] = (byte) (fileIndex >>> 24);
+         classfile[offset + 1] = (byte) (fileIndex >>> 16);
+         classfile[offset + 2] = (byte) (fileIndex >>> 8);
+         classfile[offset + 3] = (byte) fileIndex;
+      }
+   }
+
+   /**
+    * Stores a class just instrumented, provided it is {@linkplain CoverageModifier#isCacheable cacheable}.
+    * Failures to write the entry are ignored, since the cache is only an optimization.
+    */
+   void addModifiedClass(CoverageModifier modifier, byte[] modifiedClassfile)
+   {
+      if (!modifier.isCacheable()) {
+         return;
+      }
+
+      int fileIndex = modifier.getFileData().getIndex();
+      List<CoverageModifier> nestedClassModifiers = modifier.getNestedClassModifiers();
+      int classCount = 1 + nestedClassModifiers.size();
+      List<CoverageModifier> modifiers = new ArrayList<CoverageModifier>(classCount);
+      modifiers.add(modifier);
+      modifiers.addAll(nestedClassModifiers);
+
+      byte[][] classfiles = new byte[classCount][];
+      int[] fileIndexOffsets = new int[classCount];
+
+      for (int i = 0; i < classCount; i++) {
+         CoverageModifier classModifier = modifiers.get(i);
+
+         // The constant holding the file index must not be shared with the original code.
+         if (findIntegerConstant(classModifier.getOriginalClassfile(), fileIndex) > 0) {
+            return;
+         }
+
+         classfiles[i] = i == 0 ? modifiedClassfile : classModifier.toByteArray();
+         fileIndexOffsets[i] = findIntegerConstant(classfiles[i], fileIndex);
+      }
+
+      try {
+         writeEntry(modifier, modifiers, classfiles, fileIndexOffsets);
+      }
+      catch (IOException ignore) {
+         // The class will be instrumented again in the next test run.
+      }
+   }
+
+   private static int findIntegerConstant(byte[] classfile, int value)
+   {
+      ClassReader cr = new ClassReader(classfile);
+
+      for (int item = 1, itemCount = cr.getItemCount(); item < itemCount; item++) {
+         int offset = cr.getItem(item);
+
+         // The second slot taken by a long or double constant has no offset.
+         if (offset > 0 && cr.readByte(offset - 1) == CONSTANT_INTEGER && cr.readInt(offset) == value) {
+            return offset;
+         }
+      }
+
+      return -1;
+   }
+
+   private void writeEntry(
+      CoverageModifier modifier, List<CoverageModifier> modifiers, byte[][] classfiles, int[] fileIndexOffsets)
+      throws IOException
+   {
+      File entryFile = getEntryFile(modifier.getOriginalClassfile());
+
+      // Written to a separate file first, so that other JVMs never see a partially written entry.
+      File tempFile = File.createTempFile(entryFile.getName(), ".tmp", cacheDir);
+      FileOutputStream output = new FileOutputStream(tempFile);
+
+      try {
+         CoverageOutput out = new CoverageOutput(output.getChannel());
+         out.writeString(modifier.getSourceFileName());
+         out.writeInt(classfiles.length);
+
+         for (int i = 0; i < classfiles.length; i++) {
+            CoverageModifier classModifier = modifiers.get(i);
+            out.writeString(classModifier.getClassName());
+
+            if (i > 0) {
+               MessageDigest digest = createDigest();
+               out.writeByteArray(digest.digest(classModifier.getOriginalClassfile()));
+            }
+
+            out.writeByteArray(classfiles[i]);
+            out.writeSignedInt(fileIndexOffsets[i]);
+         }
+
+         modifier.getFileData().writeTo(out);
+         out.flush();
+      }
+      finally {
+         output.close();
+      }
+
+      if (!tempFile.renameTo(entryFile)) {
+         //noinspection ResultOfMethodCallIgnored
+         tempFile.delete();
+      }
+   }
+}
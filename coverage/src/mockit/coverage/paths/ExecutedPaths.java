@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.paths;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.paths.Node.*;
+
+/**
+ * Path coverage data for a method with too many conditions for all of its paths to be built in advance (see the
+ * "<code>jmockit-coverage-maxConditions</code>" system property).
+ * <p/>
+ * Only the total number of paths is computed when the method is instrumented, which takes time proportional to the
+ * number of nodes.
+ * Individual paths are only created when executed for the first time, each one identified by the set of nodes it goes
+ * through.
+ * Unlike with enumerated paths, paths through "trivial" forks (as in the evaluation of a boolean expression) are not
+ * merged into the paths they shadow.
+ */
+final class ExecutedPaths implements Serializable
+{
+   private static final long serialVersionUID = 2217893455209378823L;
+
+   private final List<Node> nodes;
+   private final long totalPaths;
+   private final ConcurrentMap<NodeSet, Path> pathsExecuted;
+
+   // Helper fields used during path execution:
+   private transient int[][] successors;
+   private transient ConcurrentMap<NodeSet, Boolean> nodeSetsNotFormingPaths;
+
+   ExecutedPaths(List<Node> nodes)
+   {
+      this.nodes = nodes;
+      successors = PathBuilder.getSuccessors(nodes);
+      totalPaths = PathBuilder.countPaths(nodes, successors);
+      pathsExecuted = new ConcurrentHashMap<NodeSet, Path>();
+      nodeSetsNotFormingPaths = new ConcurrentHashMap<NodeSet, Boolean>();
+   }
+
+   private ExecutedPaths(List<Node> nodes, long totalPaths)
+   {
+      this.nodes = nodes;
+      this.totalPaths = totalPaths;
+      pathsExecuted = new ConcurrentHashMap<NodeSet, Path>();
+      nodeSetsNotFormingPaths = new ConcurrentHashMap<NodeSet, Boolean>();
+   }
+
+   int getTotalPaths() { return totalPaths > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) totalPaths; }
+
+   /**
+    * Returns the paths executed so far, ordered by the nodes they go through.
+    */
+   List<Path> getPaths()
+   {
+      List<NodeSet> nodeSets = new ArrayList<NodeSet>(pathsExecuted.keySet());
+      Collections.sort(nodeSets);
+
+      List<Path> paths = new ArrayList<Path>(nodeSets.size());
+
+      for (NodeSet nodeSet : nodeSets) {
+         paths.add(pathsExecuted.get(nodeSet));
+      }
+
+      return paths;
+   }
+
+   void countExecution(long[] nodesReached)
+   {
+      NodeSet nodeSet = new NodeSet(nodesReached);
+      Path path = pathsExecuted.get(nodeSet);
+
+      if (path == null) {
+         if (nodeSetsNotFormingPaths.containsKey(nodeSet)) {
+            return;
+         }
+
+         nodeSet = new NodeSet(nodesReached.clone());
+         path = createPathIfValid(nodeSet);
+
+         if (path == null) {
+            nodeSetsNotFormingPaths.put(nodeSet, Boolean.TRUE);
+            return;
+         }
+
+         Path pathAddedByAnotherThread = pathsExecuted.putIfAbsent(nodeSet, path);
+
+         if (pathAddedByAnotherThread != null) {
+            path = pathAddedByAnotherThread;
+         }
+      }
+
+      path.countExecution();
+   }
+
+   /**
+    * Creates the path going through the given nodes, provided they form a path from the entry node to an exit node.
+    * The nodes reached in an execution may not form a path when a loop iterates more than once, since nodes reached
+    * again are not recorded.
+    */
+   private Path createPathIfValid(NodeSet nodeSet)
+   {
+      List<Node> pathNodes = new ArrayList<Node>();
+      int previousNodeIndex = -1;
+
+      for (int nodeIndex = nodeSet.firstNode(); nodeIndex >= 0; nodeIndex = nodeSet.nextNode(nodeIndex)) {
+         if (previousNodeIndex < 0 ? nodeIndex != 0 : !isSuccessor(previousNodeIndex, nodeIndex)) {
+            return null;
+         }
+
+         pathNodes.add(nodes.get(nodeIndex));
+         previousNodeIndex = nodeIndex;
+      }
+
+      if (pathNodes.isEmpty() || !(pathNodes.get(pathNodes.size() - 1) instanceof Exit)) {
+         return null;
+      }
+
+      return new Path(pathNodes);
+   }
+
+   private boolean isSuccessor(int nodeIndex, int possibleSuccessor)
+   {
+      for (int successor : successors[nodeIndex]) {
+         if (successor == possibleSuccessor) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   void addCountsFromPreviousTestRun(ExecutedPaths previousData)
+   {
+      for (Map.Entry<NodeSet, Path> nodeSetAndPath : previousData.pathsExecuted.entrySet()) {
+         NodeSet nodeSet = nodeSetAndPath.getKey();
+         int previousExecutionCount = nodeSetAndPath.getValue().getExecutionCount();
+         Path path = pathsExecuted.get(nodeSet);
+
+         if (path == null) {
+            path = new Path(nodesIn(nodeSet));
+            pathsExecuted.put(nodeSet, path);
+         }
+
+         path.addExecutions(previousExecutionCount);
+      }
+   }
+
+   private List<Node> nodesIn(NodeSet nodeSet)
+   {
+      List<Node> pathNodes = new ArrayList<Node>();
+
+      for (int nodeIndex = nodeSet.firstNode(); nodeIndex >= 0; nodeIndex = nodeSet.nextNode(nodeIndex)) {
+         pathNodes.add(nodes.get(nodeIndex));
+      }
+
+      return pathNodes;
+   }
+
+   void reset()
+   {
+      for (Path path : pathsExecuted.values()) {
+         path.reset();
+      }
+   }
+
+   void writeTo(CoverageOutput out, Map<Node, Integer> nodeIndexes) throws IOException
+   {
+      out.writeLong(totalPaths);
+      out.writeInt(pathsExecuted.size());
+
+      for (Path path : pathsExecuted.values()) {
+         path.writeTo(out, nodeIndexes, Collections.<Path, Integer>emptyMap());
+      }
+
+      // The successors of each node are also written, so that paths can still be identified when the data is read back
+      // for execution of the method (from the cache of instrumented classes); data read from older files has none.
+      if (successors == null) {
+         out.writeInt(0);
+         return;
+      }
+
+      out.writeInt(successors.length);
+
+      for (int[] nodeSuccessors : successors) {
+         out.writeInt(nodeSuccessors.length);
+
+         for (int successor : nodeSuccessors) {
+            out.writeInt(successor);
+         }
+      }
+   }
+
+   static ExecutedPaths readFrom(CoverageInput in, List<Node> methodNodes) throws IOException
+   {
+      ExecutedPaths executedPaths = new ExecutedPaths(methodNodes, in.readLong());
+      Map<Node, Integer> nodeIndexes = new IdentityHashMap<Node, Integer>(methodNodes.size());
+
+      for (Node node : methodNodes) {
+         nodeIndexes.put(node, nodeIndexes.size());
+      }
+
+      int words = PathIndex.wordsForNodes(methodNodes.size());
+
+      for (int i = in.readInt(); i > 0; i--) {
+         Path path = Path.readFrom(in, methodNodes);
+         in.readInt(); // shadow path, which is never present
+
+         long[] nodeSet = PathIndex.keyForPath(path, nodeIndexes, words);
+         executedPaths.pathsExecuted.put(new NodeSet(nodeSet), path);
+      }
+
+      if (in.getVersion() >= 3) {
+         executedPaths.readSuccessors(in);
+      }
+
+      return executedPaths;
+   }
+
+   private void readSuccessors(CoverageInput in) throws IOException
+   {
+      int nodeCount = in.readInt();
+
+      if (nodeCount > 0) {
+         successors = new int[nodeCount][];
+
+         for (int i = 0; i < nodeCount; i++) {
+            int[] nodeSuccessors = new int[in.readInt()];
+
+            for (int j = 0; j < nodeSuccessors.length; j++) {
+               nodeSuccessors[j] = in.readInt();
+            }
+
+            successors[i] = nodeSuccessors;
+         }
+      }
+   }
+
+   /**
+    * The set of nodes in a path, as a bitset of node indexes.
+    */
+   private static final class NodeSet implements Comparable<NodeSet>, Serializable
+   {
+      private static final long serialVersionUID = -3207785318297591153L;
+      private final long[] words;
+
+      NodeSet(long[] words) { this.words = words; }
+
+      int firstNode() { return nextNode(-1); }
+
+      int nextNode(int nodeIndex)
+      {
+         int fromIndex = nodeIndex + 1;
+         int wordIndex = fromIndex >>> 6;
+
+         if (wordIndex >= words.length) {
+            return -1;
+         }
+
+         long word = words[wordIndex] & -1L << fromIndex;
+
+         while (word == 0) {
+            if (++wordIndex == words.length) {
+               return -1;
+            }
+
+            word = words[wordIndex];
+         }
+
+         return wordIndex * 64 + Long.numberOfTrailingZeros(word);
+      }
+
+      @Override
+      public boolean equals(Object other)
+      {
+         return this == other || other instanceof NodeSet && Arrays.equals(words, ((NodeSet) other).words);
+      }
+
+      @Override
+      public int hashCode() { return Arrays.hashCode(words); }
+
+      /**
+       * Orders sets by their first differing node, with the set containing it coming first.
+       */
+      public int compareTo(NodeSet other)
+      {
+         for (int i = 0; i < words.length; i++) {
+            long difference = words[i] ^ other.words[i];
+
+            if (difference != 0) {
+               long firstDifferingNode = difference & -difference;
+               return (words[i] & firstDifferingNode) != 0 ? -1 : 1;
+            }
+         }
+
+         return 0;
+      }
+   }
+}
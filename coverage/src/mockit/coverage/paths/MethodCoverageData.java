@@ -7,6 +7,7 @@ package mockit.coverage.paths;
 import java.io.*;
 import java.util.*;
 
+import mockit.coverage.data.*;
 import mockit.coverage.paths.Node.*;
 
 public final class MethodCoverageData implements Serializable
@@ -18,26 +19,53 @@ public final class MethodCoverageData implements Serializable
    private int firstLine;
    private int lastLine;
 
-   // Helper fields used during node building and path execution:
-   private transient ThreadLocal<List<Node>> nodesReached;
-   private transient ThreadLocal<Integer> previousNodeIndex;
+   // Helper fields used during path execution:
+   private transient ThreadLocal<PathRecorder> pathRecorder;
+   private transient PathIndex pathIndex;
 
    public List<Path> paths;
    private List<Path> nonShadowedPaths;
 
+   // Only for methods whose paths are not enumerated in advance:
+   private ExecutedPaths executedPaths;
+
    public MethodCoverageData(String methodName) { this.methodName = methodName; }
 
-   public void buildPaths(int lastLine, NodeBuilder nodeBuilder)
+   /**
+    * Builds the paths of the method.
+    *
+    * @param enumeratePaths whether to create all paths now, or to only count them and create each one when first
+    *                       executed (for methods with too many paths)
+    */
+   public void buildPaths(int lastLine, NodeBuilder nodeBuilder, boolean enumeratePaths)
    {
       firstLine = nodeBuilder.firstLine;
       this.lastLine = lastLine;
 
       nodes = nodeBuilder.nodes;
-      paths = new PathBuilder().buildPaths(nodes);
+
+      if (enumeratePaths) {
+         paths = new PathBuilder().buildPaths(nodes);
+      }
+      else {
+         paths = Collections.emptyList();
+         executedPaths = new ExecutedPaths(nodes);
+      }
+
       buildListOfNonShadowedPaths();
+      prepareForPathExecution();
+   }
+
+   private void prepareForPathExecution()
+   {
+      final int nodeCount = nodes.size();
+
+      pathRecorder = new ThreadLocal<PathRecorder>() {
+         @Override
+         protected PathRecorder initialValue() { return new PathRecorder(nodeCount); }
+      };
 
-      nodesReached = new ThreadLocal<List<Node>>();
-      previousNodeIndex = new ThreadLocal<Integer>();
+      pathIndex = new PathIndex(nodes, paths);
    }
 
    private void buildListOfNonShadowedPaths()
@@ -56,60 +84,81 @@ public final class MethodCoverageData implements Serializable
 
    public void markNodeAsReached(int nodeIndex)
    {
+      PathRecorder recorder = pathRecorder.get();
+
       if (nodeIndex == 0) {
-         clearNodes();
+         recorder.enterMethod();
       }
-
-      Node node = nodes.get(nodeIndex);
-      List<Node> currentNodesReached = nodesReached.get();
-
-      if (!node.wasReached() && (nodeIndex == 0 || nodeIndex > previousNodeIndex.get())) {
-         node.setReached(Boolean.TRUE);
-         currentNodesReached.add(node);
-         previousNodeIndex.set(nodeIndex);
+      else {
+         recorder.nodeReached(nodeIndex);
       }
 
-      if (node instanceof Exit) {
-         Exit exitNode = (Exit) node;
-
-         for (Path path : exitNode.paths) {
-            if (path.countExecutionIfAllNodesWereReached(currentNodesReached)) {
-               return;
-            }
-         }
+      if (nodes.get(nodeIndex) instanceof Exit) {
+         countExecutedPath(recorder.exitMethod());
       }
    }
 
-   private void clearNodes()
+   /**
+    * Marks the exit node of a "throw" statement as reached, counting the path which ends there.
+    * The current execution is only discarded once the exception propagates out of the method.
+    */
+   public void markThrowAsReached(int nodeIndex)
    {
-      for (Node node : nodes) {
-         node.setReached(null);
+      PathRecorder recorder = pathRecorder.get();
+      recorder.nodeReached(nodeIndex);
+      countExecutedPath(recorder.endPath());
+   }
+
+   /**
+    * Discards the current execution of the method, which ended with an exception propagating out of it.
+    */
+   public void markExceptionPropagated() { pathRecorder.get().exitMethodByException(); }
+
+   private void countExecutedPath(long[] nodesReached)
+   {
+      if (nodesReached == null) {
+         return;
       }
 
-      nodesReached.set(new ArrayList<Node>());
-      previousNodeIndex.set(0);
+      if (executedPaths != null) {
+         executedPaths.countExecution(nodesReached);
+         return;
+      }
+
+      Path executedPath = pathIndex.find(nodesReached);
+
+      if (executedPath != null) {
+         executedPath.countExecution();
+      }
    }
 
-   public List<Path> getPaths() { return nonShadowedPaths; }
+   /**
+    * Returns the non-shadowed paths of the method; for a method whose paths are not enumerated in advance, only the
+    * paths executed so far are returned.
+    */
+   public List<Path> getPaths() { return executedPaths == null ? nonShadowedPaths : executedPaths.getPaths(); }
 
    public int getExecutionCount()
    {
       int totalCount = 0;
 
-      for (Path path : nonShadowedPaths) {
+      for (Path path : getPaths()) {
          totalCount += path.getExecutionCount();
       }
 
       return totalCount;
    }
 
-   public int getTotalPaths() { return nonShadowedPaths.size(); }
+   public int getTotalPaths()
+   {
+      return executedPaths == null ? nonShadowedPaths.size() : executedPaths.getTotalPaths();
+   }
 
    public int getCoveredPaths()
    {
       int coveredCount = 0;
 
-      for (Path path : nonShadowedPaths) {
+      for (Path path : getPaths()) {
          if (path.getExecutionCount() > 0) {
             coveredCount++;
          }
@@ -120,19 +169,113 @@ public final class MethodCoverageData implements Serializable
 
    public void addCountsFromPreviousTestRun(MethodCoverageData previousData)
    {
-      for (int i = 0; i < paths.size(); i++) {
+      // Data gathered with a different setting for "jmockit-coverage-maxConditions" can't be merged.
+      if (executedPaths != null) {
+         if (previousData.executedPaths != null) {
+            executedPaths.addCountsFromPreviousTestRun(previousData.executedPaths);
+         }
+      }
+      else if (previousData.executedPaths == null) {
+         for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            Path previousPath = previousData.paths.get(i);
+            path.addCountFromPreviousTestRun(previousPath);
+         }
+      }
+   }
+
+   void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeString(methodName);
+      out.writeInt(firstLine);
+      out.writeInt(lastLine);
+
+      Map<Node, Integer> nodeIndexes = new IdentityHashMap<Node, Integer>(nodes.size());
+      out.writeInt(nodes.size());
+
+      for (Node node : nodes) {
+         nodeIndexes.put(node, nodeIndexes.size());
+         node.writeTo(out);
+      }
+
+      Map<Path, Integer> pathIndexes = new IdentityHashMap<Path, Integer>(paths.size());
+
+      for (Path path : paths) {
+         pathIndexes.put(path, pathIndexes.size());
+      }
+
+      out.writeInt(paths.size());
+
+      for (Path path : paths) {
+         path.writeTo(out, nodeIndexes, pathIndexes);
+      }
+
+      out.writeBoolean(executedPaths != null);
+
+      if (executedPaths != null) {
+         executedPaths.writeTo(out, nodeIndexes);
+      }
+   }
+
+   static MethodCoverageData readFrom(CoverageInput in) throws IOException
+   {
+      MethodCoverageData methodData = new MethodCoverageData(in.readString());
+      methodData.firstLine = in.readInt();
+      methodData.lastLine = in.readInt();
+
+      int nodeCount = in.readInt();
+      List<Node> nodes = new ArrayList<Node>(nodeCount);
+
+      for (int i = 0; i < nodeCount; i++) {
+         nodes.add(Node.readFrom(in));
+      }
+
+      int pathCount = in.readInt();
+      List<Path> paths = new ArrayList<Path>(pathCount);
+      int[] shadowPathIndexes = new int[pathCount];
+
+      for (int i = 0; i < pathCount; i++) {
+         paths.add(Path.readFrom(in, nodes));
+         shadowPathIndexes[i] = in.readInt() - 1;
+      }
+
+      for (int i = 0; i < pathCount; i++) {
          Path path = paths.get(i);
-         Path previousPath = previousData.paths.get(i);
-         path.addCountFromPreviousTestRun(previousPath);
+         int shadowPathIndex = shadowPathIndexes[i];
+
+         if (shadowPathIndex >= 0) {
+            path.shadowPath = paths.get(shadowPathIndex);
+         }
+
+         // Each path ends at an exit node, which needs to know about it for path executions to be counted.
+         Node lastNode = path.nodes.get(path.nodes.size() - 1);
+
+         if (lastNode instanceof Exit) {
+            ((Exit) lastNode).paths.add(path);
+         }
+      }
+
+      if (in.getVersion() >= 2 && in.readBoolean()) {
+         methodData.executedPaths = ExecutedPaths.readFrom(in, nodes);
       }
+
+      methodData.nodes = nodes;
+      methodData.paths = paths;
+      methodData.buildListOfNonShadowedPaths();
+      methodData.prepareForPathExecution();
+      return methodData;
    }
 
    public void reset()
    {
-      clearNodes();
+      pathRecorder.remove();
 
       for (Path path : paths) {
          path.reset();
       }
+
+      if (executedPaths != null) {
+         executedPaths.reset();
+      }
    }
 }
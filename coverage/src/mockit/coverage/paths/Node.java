@@ -7,11 +7,12 @@ package mockit.coverage.paths;
 import java.util.*;
 import java.io.*;
 
+import mockit.coverage.data.*;
+
 public class Node implements Serializable
 {
    private static final long serialVersionUID = 7521062699264845946L;
 
-   private final transient ThreadLocal<Boolean> reached = new ThreadLocal<Boolean>();
    public final int line;
    protected int segment;
 
@@ -25,8 +26,45 @@ public class Node implements Serializable
 
    public final int getSegment() { return segment; }
 
-   final void setReached(Boolean reached) { this.reached.set(reached); }
-   final boolean wasReached() { return reached.get() != null; }
+   /**
+    * Adds the nodes which can immediately follow this one in a path, in the same order as alternate paths are created
+    * by {@code addToPath}.
+    */
+   void addSuccessors(List<Node> successors) {}
+
+   // Node types in data files; only the line and segment of each node are written, since links between nodes are
+   // only needed while building the paths for a method.
+   private static final Class<?>[] NODE_TYPES = {
+      Entry.class, Exit.class, BasicBlock.class, SimpleFork.class, MultiFork.class, Join.class, Goto.class
+   };
+
+   final void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeInt(Arrays.asList(NODE_TYPES).indexOf(getClass()));
+      out.writeInt(line);
+      out.writeInt(segment);
+   }
+
+   static Node readFrom(CoverageInput in) throws IOException
+   {
+      int type = in.readInt();
+      int line = in.readInt();
+      Node node;
+
+      switch (type) {
+         case 0: node = new Entry(line); break;
+         case 1: node = new Exit(line); break;
+         case 2: node = new BasicBlock(line); break;
+         case 3: node = new SimpleFork(line); break;
+         case 4: node = new MultiFork(line); break;
+         case 5: node = new Join(line); break;
+         case 6: node = new Goto(line); break;
+         default: throw new IOException("Unknown node type " + type + " in coverage data file");
+      }
+
+      node.segment = in.readInt();
+      return node;
+   }
 
    @Override
    public final String toString() { return getClass().getSimpleName() + ':' + line + '-' + segment; }
@@ -37,6 +75,14 @@ public class Node implements Serializable
       Fork nextNode;
 
       Entry(int entryLine) { super(entryLine); }
+
+      @Override
+      void addSuccessors(List<Node> successors)
+      {
+         if (nextNode != null) {
+            successors.add(nextNode);
+         }
+      }
    }
 
    interface ConditionalSuccessor extends Serializable
@@ -73,6 +119,17 @@ public class Node implements Serializable
 
       public void setNextNodeAfterGoto(Join newJoin) { nextNodeAfterGoto = newJoin; }
 
+      @Override
+      void addSuccessors(List<Node> successors)
+      {
+         if (nextNodeAfterGoto != null) {
+            successors.add(nextNodeAfterGoto);
+         }
+         else if (nextConsecutiveNode != null) {
+            successors.add((Node) nextConsecutiveNode);
+         }
+      }
+
       public void addToPath(Path path)
       {
          path.addNode(this);
@@ -113,6 +170,18 @@ public class Node implements Serializable
       @Override
       void addNextNode(Join nextNode) { nextNodeAfterJump = nextNode; }
 
+      @Override
+      void addSuccessors(List<Node> successors)
+      {
+         if (nextNodeAfterJump != null) {
+            successors.add(nextNodeAfterJump);
+         }
+
+         if (nextConsecutiveNode != null) {
+            successors.add((Node) nextConsecutiveNode);
+         }
+      }
+
       public void addToPath(Path path)
       {
          path.addNode(this);
@@ -131,6 +200,9 @@ public class Node implements Serializable
       @Override
       void addNextNode(Join nextNode) { caseNodes.add(nextNode); }
 
+      @Override
+      void addSuccessors(List<Node> successors) { successors.addAll(caseNodes); }
+
       public void addToPath(Path path)
       {
          path.addNode(this);
@@ -151,6 +223,14 @@ public class Node implements Serializable
 
       public void setNextNodeAfterGoto(Join newJoin) { nextNode = newJoin; }
 
+      @Override
+      void addSuccessors(List<Node> successors)
+      {
+         if (nextNode != null) {
+            successors.add((Node) nextNode);
+         }
+      }
+
       public void addToPath(Path path)
       {
          path.addNode(this);
@@ -177,6 +257,14 @@ public class Node implements Serializable
 
       public void setNextNodeAfterGoto(Join join) { nextNodeAfterGoto = join; }
 
+      @Override
+      void addSuccessors(List<Node> successors)
+      {
+         if (nextNodeAfterGoto != null) {
+            successors.add(nextNodeAfterGoto);
+         }
+      }
+
       public void addToPath(Path path)
       {
          path.addNode(this);
@@ -8,6 +8,8 @@ import java.io.*;
 import java.util.*;
 import java.util.concurrent.atomic.*;
 
+import mockit.coverage.data.*;
+
 public final class Path implements Serializable
 {
    private static final long serialVersionUID = 8895491272907955543L;
@@ -15,7 +17,7 @@ public final class Path implements Serializable
    final List<Node> nodes = new ArrayList<Node>(4);
    private final AtomicInteger executionCount = new AtomicInteger();
    private final boolean shadowed;
-   private Path shadowPath;
+   Path shadowPath;
 
    Path(Node.Entry entryNode)
    {
@@ -30,18 +32,22 @@ public final class Path implements Serializable
       nodes.addAll(sharedSubPath.nodes);
    }
 
-   void addNode(Node node) { nodes.add(node); }
+   Path(List<Node> pathNodes)
+   {
+      shadowed = false;
+      nodes.addAll(pathNodes);
+   }
 
-   boolean countExecutionIfAllNodesWereReached(List<Node> nodesReached)
+   private Path(boolean shadowed, int executionCount)
    {
-      boolean allNodesReached = nodes.equals(nodesReached);
+      this.shadowed = shadowed;
+      this.executionCount.set(executionCount);
+   }
 
-      if (allNodesReached) {
-         executionCount.getAndIncrement();
-      }
+   void addNode(Node node) { nodes.add(node); }
 
-      return allNodesReached;
-   }
+   void countExecution() { executionCount.getAndIncrement(); }
+   void addExecutions(int count) { executionCount.getAndAdd(count); }
 
    public boolean isShadowed() { return shadowed; }
    public List<Node> getNodes() { return nodes; }
@@ -67,4 +73,31 @@ public final class Path implements Serializable
    {
       executionCount.set(0);
    }
+
+   void writeTo(CoverageOutput out, Map<Node, Integer> nodeIndexes, Map<Path, Integer> pathIndexes)
+      throws IOException
+   {
+      out.writeBoolean(shadowed);
+      out.writeInt(executionCount.get());
+      out.writeInt(nodes.size());
+
+      for (Node node : nodes) {
+         out.writeInt(nodeIndexes.get(node));
+      }
+
+      out.writeInt(shadowPath == null ? 0 : pathIndexes.get(shadowPath) + 1);
+   }
+
+   static Path readFrom(CoverageInput in, List<Node> methodNodes) throws IOException
+   {
+      boolean shadowed = in.readBoolean();
+      Path path = new Path(shadowed, in.readInt());
+      int nodeCount = in.readInt();
+
+      for (int i = 0; i < nodeCount; i++) {
+         path.addNode(methodNodes.get(in.readInt()));
+      }
+
+      return path;
+   }
 }
@@ -42,4 +42,107 @@ final class PathBuilder
 
       return paths;
    }
+
+   /**
+    * Gets the indexes of the successors of each node, following the same links used when building paths.
+    */
+   static int[][] getSuccessors(List<Node> nodes)
+   {
+      Map<Node, Integer> nodeIndexes = new IdentityHashMap<Node, Integer>(nodes.size());
+
+      for (Node node : nodes) {
+         nodeIndexes.put(node, nodeIndexes.size());
+      }
+
+      int[][] successors = new int[nodes.size()][];
+      List<Node> nodeSuccessors = new ArrayList<Node>();
+
+      for (int i = 0; i < successors.length; i++) {
+         nodeSuccessors.clear();
+         nodes.get(i).addSuccessors(nodeSuccessors);
+
+         if (i == 0 && nodeSuccessors.isEmpty() && nodes.size() > 1) {
+            nodeSuccessors.add(nodes.get(1));
+         }
+
+         successors[i] = new int[nodeSuccessors.size()];
+
+         for (int j = 0; j < successors[i].length; j++) {
+            successors[i][j] = nodeIndexes.get(nodeSuccessors.get(j));
+         }
+      }
+
+      return successors;
+   }
+
+   /**
+    * Counts the paths which {@link #buildPaths} would build, without building them.
+    * Each node is visited once, with the number of paths from it to an exit node computed after those of its
+    * successors; therefore, the cost is linear in the number of nodes, even when the number of paths is exponential.
+    *
+    * @return the number of paths, or {@code Long.MAX_VALUE} if too large
+    */
+   static long countPaths(List<Node> nodes, int[][] successors)
+   {
+      if (nodes.size() == 1) {
+         return 0;
+      }
+
+      int nodeCount = nodes.size();
+      long[] pathsFromNode = new long[nodeCount];
+      byte[] state = new byte[nodeCount]; // 0: not visited, 1: visiting successors, 2: done
+      int[] stack = new int[nodeCount];
+      int top = 0;
+
+      while (top >= 0) {
+         int nodeIndex = stack[top];
+
+         if (state[nodeIndex] == 0) {
+            state[nodeIndex] = 1;
+
+            for (int successor : successors[nodeIndex]) {
+               if (state[successor] == 0) {
+                  if (++top == stack.length) {
+                     int[] newStack = new int[2 * stack.length];
+                     System.arraycopy(stack, 0, newStack, 0, stack.length);
+                     stack = newStack;
+                  }
+
+                  stack[top] = successor;
+               }
+            }
+         }
+         else {
+            top--;
+
+            if (state[nodeIndex] == 1) {
+               state[nodeIndex] = 2;
+               Node node = nodes.get(nodeIndex);
+               pathsFromNode[nodeIndex] = countPathsFromNode(node, successors[nodeIndex], pathsFromNode);
+            }
+         }
+      }
+
+      return pathsFromNode[0];
+   }
+
+   private static long countPathsFromNode(Node node, int[] successors, long[] pathsFromNode)
+   {
+      if (node instanceof Exit) {
+         return 1;
+      }
+
+      long count = 0;
+
+      // A successor still being visited would close a cycle, which is not part of any path; its count is still zero.
+      for (int successor : successors) {
+         count += pathsFromNode[successor];
+
+         if (count < 0) {
+            return Long.MAX_VALUE;
+         }
+      }
+
+      return count;
+   }
 }
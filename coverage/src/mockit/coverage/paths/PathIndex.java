@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.paths;
+
+import java.util.*;
+
+import mockit.coverage.paths.Node.*;
+
+/**
+ * Finds the path of a method which consists of a given set of nodes, through a hash table keyed by the bitset of node
+ * indexes in each path.
+ * <p/>
+ * Only paths whose nodes appear in increasing index order are indexed, since those are the only ones which can be
+ * recorded by {@link PathRecorder}.
+ */
+final class PathIndex
+{
+   static int wordsForNodes(int nodeCount) { return (nodeCount + 63) >>> 6; }
+
+   private final long[][] keys;
+   private final Path[] paths;
+   private final int mask;
+
+   PathIndex(List<Node> nodes, List<Path> allPaths)
+   {
+      int tableSize = 2;
+
+      while (tableSize < 2 * allPaths.size()) {
+         tableSize <<= 1;
+      }
+
+      keys = new long[tableSize][];
+      paths = new Path[tableSize];
+      mask = tableSize - 1;
+
+      Map<Node, Integer> nodeIndexes = new IdentityHashMap<Node, Integer>(nodes.size());
+
+      for (Node node : nodes) {
+         nodeIndexes.put(node, nodeIndexes.size());
+      }
+
+      int words = wordsForNodes(nodes.size());
+
+      // Paths are added in the order they would be tried before, when two paths end up with the same nodes.
+      for (Node node : nodes) {
+         if (node instanceof Exit) {
+            for (Path path : ((Exit) node).paths) {
+               long[] key = keyForPath(path, nodeIndexes, words);
+
+               if (key != null) {
+                  add(key, path);
+               }
+            }
+         }
+      }
+   }
+
+   static long[] keyForPath(Path path, Map<Node, Integer> nodeIndexes, int words)
+   {
+      long[] key = new long[words];
+      int previousNodeIndex = -1;
+
+      for (Node node : path.nodes) {
+         int nodeIndex = nodeIndexes.get(node);
+
+         if (nodeIndex <= previousNodeIndex) {
+            return null;
+         }
+
+         key[nodeIndex >>> 6] |= 1L << nodeIndex;
+         previousNodeIndex = nodeIndex;
+      }
+
+      return key;
+   }
+
+   private void add(long[] key, Path path)
+   {
+      for (int slot = slotFor(key); ; slot = slot + 1 & mask) {
+         if (keys[slot] == null) {
+            keys[slot] = key;
+            paths[slot] = path;
+            return;
+         }
+
+         if (Arrays.equals(keys[slot], key)) {
+            return;
+         }
+      }
+   }
+
+   private int slotFor(long[] key)
+   {
+      int hash = Arrays.hashCode(key);
+      hash ^= hash >>> 16;
+      return hash & mask;
+   }
+
+   Path find(long[] reachedNodes)
+   {
+      for (int slot = slotFor(reachedNodes); ; slot = slot + 1 & mask) {
+         long[] key = keys[slot];
+
+         if (key == null) {
+            return null;
+         }
+
+         if (Arrays.equals(key, reachedNodes)) {
+            return paths[slot];
+         }
+      }
+   }
+}
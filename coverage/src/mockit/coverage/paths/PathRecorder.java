@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.paths;
+
+/**
+ * Records the nodes reached by the executions of a method in a given thread.
+ * <p/>
+ * Each execution of the method (starting at its entry node) gets its own frame, which holds the set of reached node
+ * indexes as a bitset.
+ * Frames are kept in a stack, so that a recursive execution does not disturb the one it was called from.
+ * A frame is removed when the execution returns, or when an exception propagates out of it (which the instrumented
+ * method reports from a catch-all handler), so that the frame on top of the stack always belongs to the innermost
+ * execution still running.
+ * Frames are reused between executions, so that no allocation occurs once the stack is deep enough.
+ */
+final class PathRecorder
+{
+   // Marks a frame whose path already ended at a "throw" exit node, so that no more nodes are added to it.
+   private static final int ENDED = Integer.MAX_VALUE;
+
+   private final int words;
+   private long[][] reachedNodes;
+   private int[] lastReachedNodes;
+   private int currentFrame;
+
+   PathRecorder(int nodeCount)
+   {
+      words = PathIndex.wordsForNodes(nodeCount);
+      reachedNodes = new long[4][];
+      lastReachedNodes = new int[4];
+      currentFrame = -1;
+   }
+
+   void enterMethod()
+   {
+      currentFrame++;
+
+      if (currentFrame == reachedNodes.length) {
+         growStack();
+      }
+
+      long[] nodes = reachedNodes[currentFrame];
+
+      if (nodes == null) {
+         reachedNodes[currentFrame] = nodes = new long[words];
+      }
+      else {
+         for (int i = 0; i < words; i++) {
+            nodes[i] = 0L;
+         }
+      }
+
+      nodes[0] = 1L;
+      lastReachedNodes[currentFrame] = 0;
+   }
+
+   private void growStack()
+   {
+      int newLength = 2 * reachedNodes.length;
+
+      long[][] newReachedNodes = new long[newLength][];
+      System.arraycopy(reachedNodes, 0, newReachedNodes, 0, reachedNodes.length);
+      reachedNodes = newReachedNodes;
+
+      int[] newLastReachedNodes = new int[newLength];
+      System.arraycopy(lastReachedNodes, 0, newLastReachedNodes, 0, lastReachedNodes.length);
+      lastReachedNodes = newLastReachedNodes;
+   }
+
+   /**
+    * Adds a node to the current frame, provided it comes after the last node added.
+    * Nodes reached again through a backward jump (in a loop) are not considered, since only acyclic paths are
+    * identified.
+    */
+   void nodeReached(int nodeIndex)
+   {
+      if (currentFrame >= 0 && nodeIndex > lastReachedNodes[currentFrame]) {
+         reachedNodes[currentFrame][nodeIndex >>> 6] |= 1L << nodeIndex;
+         lastReachedNodes[currentFrame] = nodeIndex;
+      }
+   }
+
+   /**
+    * Ends the current frame, for an execution returning from the method.
+    *
+    * @return the nodes reached in the frame, or {@code null} if there was no current frame or its path already ended;
+    * the returned array is only valid until the next execution of the method is entered
+    */
+   long[] exitMethod()
+   {
+      if (currentFrame < 0) {
+         return null;
+      }
+
+      int frame = currentFrame--;
+      return lastReachedNodes[frame] == ENDED ? null : reachedNodes[frame];
+   }
+
+   /**
+    * Ends the path of the current frame at a "throw" exit node, while keeping the frame until the exception propagates
+    * out of the method (or, if it gets caught in the method itself, until the execution returns).
+    *
+    * @return the nodes reached in the frame, or {@code null} if there was no current frame or its path already ended
+    */
+   long[] endPath()
+   {
+      if (currentFrame < 0 || lastReachedNodes[currentFrame] == ENDED) {
+         return null;
+      }
+
+      lastReachedNodes[currentFrame] = ENDED;
+      return reachedNodes[currentFrame];
+   }
+
+   /**
+    * Discards the current frame, for an execution ending with an exception propagating out of the method.
+    */
+   void exitMethodByException()
+   {
+      if (currentFrame >= 0) {
+         currentFrame--;
+      }
+   }
+}
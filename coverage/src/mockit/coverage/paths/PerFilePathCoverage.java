@@ -35,6 +35,25 @@ public final class PerFilePathCoverage implements PerFileCoverage
       firstLineToMethodData.put(methodData.getFirstLineInBody(), methodData);
    }
 
+   public void writeTo(CoverageOutput out) throws IOException
+   {
+      out.writeInt(firstLineToMethodData.size());
+
+      for (MethodCoverageData methodData : firstLineToMethodData.values()) {
+         methodData.writeTo(out);
+      }
+   }
+
+   public void readFrom(CoverageInput in) throws IOException
+   {
+      int methodCount = in.readInt();
+
+      for (int i = 0; i < methodCount; i++) {
+         MethodCoverageData methodData = MethodCoverageData.readFrom(in);
+         addMethod(methodData);
+      }
+   }
+
    public void registerExecution(int firstLineInMethodBody, int node)
    {
       MethodCoverageData methodData = firstLineToMethodData.get(firstLineInMethodBody);
@@ -44,6 +63,24 @@ public final class PerFilePathCoverage implements PerFileCoverage
       }
    }
 
+   public void registerThrow(int firstLineInMethodBody, int node)
+   {
+      MethodCoverageData methodData = firstLineToMethodData.get(firstLineInMethodBody);
+
+      if (methodData != null) {
+         methodData.markThrowAsReached(node);
+      }
+   }
+
+   public void registerExceptionPropagated(int firstLineInMethodBody)
+   {
+      MethodCoverageData methodData = firstLineToMethodData.get(firstLineInMethodBody);
+
+      if (methodData != null) {
+         methodData.markExceptionPropagated();
+      }
+   }
+
    public int getTotalItems()
    {
       computeValuesIfNeeded();
@@ -66,12 +103,16 @@ public final class PerFilePathCoverage implements PerFileCoverage
    {
       if (totalPaths >= 0) return;
 
-      totalPaths = coveredPaths = 0;
+      long total = 0;
+      coveredPaths = 0;
 
       for (MethodCoverageData method : firstLineToMethodData.values()) {
-         totalPaths += method.getTotalPaths();
+         total += method.getTotalPaths();
          coveredPaths += method.getCoveredPaths();
       }
+
+      // Methods whose paths are only counted can have a huge number of them.
+      totalPaths = total > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) total;
    }
 
    public void reset()
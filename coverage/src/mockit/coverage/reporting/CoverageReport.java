@@ -7,6 +7,7 @@ package mockit.coverage.reporting;
 import java.io.*;
 import java.util.*;
 import java.util.Map.*;
+import java.util.concurrent.*;
 
 import mockit.coverage.data.*;
 import mockit.coverage.reporting.packages.*;
@@ -20,6 +21,7 @@ class CoverageReport
    private final Map<String, List<String>> packageToFiles;
    private final boolean withCallPoints;
    private final Collection<String> sourceFilesNotFound;
+   private final PageDigests pageDigests;
 
    protected CoverageReport(String outputDir, String[] srcDirs, CoverageData coverageData, boolean withCallPoints)
    {
@@ -29,6 +31,7 @@ class CoverageReport
       packageToFiles = new HashMap<String, List<String>>();
       this.withCallPoints = withCallPoints;
       sourceFilesNotFound = srcDirs == null ? null : new ArrayList<String>();
+      pageDigests = srcDirs == null ? null : PageDigests.createIfIncremental(this.outputDir, withCallPoints);
    }
 
    public final void generate() throws IOException
@@ -81,31 +84,110 @@ class CoverageReport
       return outputFile;
    }
 
+   /**
+    * Generates the source file pages in parallel, and then builds the package lists from the results in the same order
+    * as the files were given, so that the rest of the report does not depend on which pages were generated first.
+    */
    private void generateFileCoverageReportsWhileBuildingPackageLists() throws IOException
    {
       Set<Entry<String, FileCoverageData>> files = fileToFileData.entrySet();
 
+      if (sourceDirs != null) {
+         generateFileCoverageReports(files);
+
+         if (pageDigests != null) {
+            pageDigests.save();
+         }
+      }
+
       for (Entry<String, FileCoverageData> fileAndFileData : files) {
-         generateFileCoverageReport(fileAndFileData.getKey(), fileAndFileData.getValue());
+         addFileToPackageFileList(fileAndFileData.getKey());
       }
    }
 
-   private void generateFileCoverageReport(String sourceFile, FileCoverageData fileData) throws IOException
+   private void generateFileCoverageReports(Set<Entry<String, FileCoverageData>> files) throws IOException
    {
-      if (sourceDirs == null) {
-         addFileToPackageFileList(sourceFile);
+      int threads = Math.min(Runtime.getRuntime().availableProcessors(), files.size());
+
+      if (threads <= 1) {
+         for (Entry<String, FileCoverageData> fileAndFileData : files) {
+            String sourceFile = fileAndFileData.getKey();
+
+            if (!generateFileCoverageReport(sourceFile, fileAndFileData.getValue())) {
+               sourceFilesNotFound.add(sourceFile);
+            }
+         }
+
+         return;
       }
-      else {
-         InputFile inputFile = new InputFile(sourceDirs, sourceFile);
 
-         if (inputFile.wasFileFound()) {
-            new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+      try {
+         Map<String, Future<Boolean>> pageGenerations = new LinkedHashMap<String, Future<Boolean>>(files.size());
+
+         for (final Entry<String, FileCoverageData> fileAndFileData : files) {
+            pageGenerations.put(fileAndFileData.getKey(), executor.submit(new Callable<Boolean>() {
+               public Boolean call() throws IOException
+               {
+                  return generateFileCoverageReport(fileAndFileData.getKey(), fileAndFileData.getValue());
+               }
+            }));
          }
-         else {
-            sourceFilesNotFound.add(sourceFile);
+
+         for (Entry<String, Future<Boolean>> fileAndPageGeneration : pageGenerations.entrySet()) {
+            boolean sourceFileFound = waitForCompletion(fileAndPageGeneration.getValue());
+
+            if (!sourceFileFound) {
+               sourceFilesNotFound.add(fileAndPageGeneration.getKey());
+            }
          }
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Generates the page for a source file, unless it is up-to-date with the source file and its coverage data.
+    *
+    * @return whether the source file was found
+    */
+   private boolean generateFileCoverageReport(String sourceFile, FileCoverageData fileData) throws IOException
+   {
+      InputFile inputFile = new InputFile(sourceDirs, sourceFile);
+
+      if (!inputFile.wasFileFound()) {
+         return false;
+      }
+
+      if (pageDigests != null && pageDigests.isPageUpToDate(sourceFile, inputFile.getSourceFile(), fileData)) {
+         inputFile.close();
+      }
+      else {
+         new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
+      }
+
+      return true;
+   }
+
+   private static boolean waitForCompletion(Future<Boolean> pageGeneration) throws IOException
+   {
+      try {
+         return pageGeneration.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while generating coverage report");
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof IOException) throw (IOException) cause;
+         if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+         if (cause instanceof Error) throw (Error) cause;
 
-         addFileToPackageFileList(sourceFile);
+         throw new RuntimeException(cause);
       }
    }
 
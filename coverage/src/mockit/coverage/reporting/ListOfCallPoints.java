@@ -33,26 +33,31 @@ public final class ListOfCallPoints
 
       for (CallPoint callPoint : callPoints) {
          StackTraceElement current = callPoint.getStackTraceElement();
+         int executionCount = callPoint.getExecutionCount();
 
          if (previous == null) {
             appendTestMethod(current);
+            n = executionCount;
          }
          else if (!isSameTestMethod(current, previous)) {
-            appendRepetitionCountIfAny();
+            appendRepetitionCountIfAny(previous);
             content.append("</li>").append(EOL);
             appendTestMethod(current);
+            n = executionCount;
          }
          else if (current.getLineNumber() == previous.getLineNumber()) {
-            n++;
+            n += executionCount;
          }
          else {
-            appendRepetitionCountIfAny();
+            appendRepetitionCountIfAny(previous);
             content.append(", ").append(current.getLineNumber());
+            n = executionCount;
          }
 
          previous = current;
       }
 
+      appendRepetitionCountIfAny(previous);
       content.append("</li>").append(EOL).append("        </ol>").append(EOL).append("      ");
    }
 
@@ -60,15 +65,18 @@ public final class ListOfCallPoints
    {
       content.append("          <li>");
       content.append(current.getClassName()).append('#');
-      content.append(current.getMethodName().replaceFirst("<", "&lt;")).append(": ");
-      content.append(current.getLineNumber());
+      content.append(current.getMethodName().replaceFirst("<", "&lt;"));
+
+      // Call points recorded by older versions of the coverage tool include the line in the test method.
+      if (current.getLineNumber() >= 0) {
+         content.append(": ").append(current.getLineNumber());
+      }
    }
 
-   private void appendRepetitionCountIfAny()
+   private void appendRepetitionCountIfAny(StackTraceElement previous)
    {
       if (n > 1) {
-         content.append('x').append(n);
-         n = 1;
+         content.append(previous.getLineNumber() < 0 ? " x" : "x").append(n);
       }
    }
 
@@ -30,19 +30,25 @@ public final class OutputFile extends PrintWriter
 
    private static File getOutputFileCreatingDirIfNeeded(String outputDir, String sourceFilePath)
    {
-      int p = sourceFilePath.lastIndexOf('.');
-      String outputFileName = sourceFilePath.substring(0, p) + ".html";
-      File outputFile = new File(outputDir, outputFileName);
+      File outputFile = getOutputFile(outputDir, sourceFilePath);
       File parentDir = outputFile.getParentFile();
 
       if (!parentDir.exists()) {
-         boolean outputDirCreated = parentDir.mkdirs();
+         // Pages are generated in parallel, so the dir may also have been created by another thread in the meantime.
+         boolean outputDirCreated = parentDir.mkdirs() || parentDir.isDirectory();
          assert outputDirCreated : "Failed to create output dir: " + outputDir;
       }
 
       return outputFile;
    }
 
+   static File getOutputFile(String outputDir, String sourceFilePath)
+   {
+      int p = sourceFilePath.lastIndexOf('.');
+      String outputFileName = sourceFilePath.substring(0, p) + ".html";
+      return new File(outputDir, outputFileName);
+   }
+
    private static String getRelativeSubPathToOutputDir(String filePath)
    {
       StringBuilder cssRelPath = new StringBuilder();
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+
+/**
+ * Digests of the source file pages in an HTML report, kept in the output directory between report generations when
+ * the "<code>jmockit-coverage-incremental</code>" system property is "<code>true</code>", so that pages which would be
+ * generated with the same contents as before are not written again.
+ * <p/>
+ * Each digest covers the source file, its coverage data, and the settings affecting the page (including the version of
+ * the coverage tool).
+ * Instances can be used from multiple threads at the same time.
+ */
+final class PageDigests
+{
+   private static final String DIGESTS_FILE_NAME = "pageDigests.properties";
+
+   static PageDigests createIfIncremental(String outputDir, boolean withCallPoints)
+   {
+      boolean incremental = "true".equals(System.getProperty("jmockit-coverage-incremental"));
+      return incremental ? new PageDigests(outputDir, withCallPoints) : null;
+   }
+
+   private final String outputDir;
+   private final byte[] settings;
+   private final Properties previousDigests;
+   private final ConcurrentMap<String, String> currentDigests;
+
+   private PageDigests(String outputDir, boolean withCallPoints)
+   {
+      this.outputDir = outputDir;
+      settings = describeSettings(withCallPoints);
+      previousDigests = new Properties();
+      currentDigests = new ConcurrentHashMap<String, String>();
+      loadPreviousDigests();
+   }
+
+   private static byte[] describeSettings(boolean withCallPoints)
+   {
+      StringBuilder settings = new StringBuilder();
+
+      for (Metrics metric : Metrics.values()) {
+         settings.append(metric).append('=').append(metric.isActive()).append(',');
+      }
+
+      settings.append("callPoints=").append(withCallPoints);
+
+      URL reportClass = PageDigests.class.getResource("PageDigests.class");
+      long reportVersion;
+
+      try {
+         reportVersion = reportClass.openConnection().getLastModified();
+      }
+      catch (IOException ignore) {
+         reportVersion = System.currentTimeMillis();
+      }
+
+      settings.append(',').append(reportClass).append(',').append(reportVersion);
+
+      try {
+         return settings.toString().getBytes("UTF-8");
+      }
+      catch (UnsupportedEncodingException e) {
+         throw new Error(e);
+      }
+   }
+
+   private void loadPreviousDigests()
+   {
+      File digestsFile = new File(outputDir, DIGESTS_FILE_NAME);
+
+      if (digestsFile.isFile()) {
+         try {
+            InputStream input = new FileInputStream(digestsFile);
+
+            try { previousDigests.load(input); } finally { input.close(); }
+         }
+         catch (IOException ignore) {
+            // All pages will be generated again.
+            previousDigests.clear();
+         }
+      }
+   }
+
+   /**
+    * Records the digest for the page of the given source file, and returns whether it matches the digest from the
+    * previous report generation, with the page still present.
+    */
+   boolean isPageUpToDate(String sourceFile, File sourceFileFound, FileCoverageData fileData) throws IOException
+   {
+      String digest = computeDigest(sourceFileFound, fileData);
+      currentDigests.put(sourceFile, digest);
+
+      return
+         digest.equals(previousDigests.getProperty(sourceFile)) &&
+         OutputFile.getOutputFile(outputDir, sourceFile).isFile();
+   }
+
+   private String computeDigest(File sourceFileFound, FileCoverageData fileData) throws IOException
+   {
+      MessageDigest digest = createDigest();
+      digest.update(settings);
+      digest.update(sourceFileFound.getPath().getBytes("UTF-8"));
+      digest.update((byte) 0);
+
+      InputStream sourceInput = new FileInputStream(sourceFileFound);
+
+      try {
+         byte[] buffer = new byte[8192];
+
+         for (int n = sourceInput.read(buffer); n >= 0; n = sourceInput.read(buffer)) {
+            digest.update(buffer, 0, n);
+         }
+      }
+      finally {
+         sourceInput.close();
+      }
+
+      CoverageOutput dataOutput = new CoverageOutput(Channels.newChannel(new DigestingOutputStream(digest)));
+      fileData.writeTo(dataOutput);
+      dataOutput.flush();
+
+      byte[] hash = digest.digest();
+      StringBuilder hex = new StringBuilder(2 * hash.length);
+
+      for (byte b : hash) {
+         hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return hex.toString();
+   }
+
+   private static MessageDigest createDigest()
+   {
+      try { return MessageDigest.getInstance("SHA-1"); } catch (NoSuchAlgorithmException e) { throw new Error(e); }
+   }
+
+   /**
+    * Writes the digests recorded for the current report, replacing those from the previous one.
+    */
+   void save() throws IOException
+   {
+      Properties digests = new Properties();
+      digests.putAll(currentDigests);
+
+      OutputStream output = new FileOutputStream(new File(outputDir, DIGESTS_FILE_NAME));
+
+      try {
+         digests.store(output, "Digests of the source file pages in the JMockit Coverage report");
+      }
+      finally {
+         output.close();
+      }
+   }
+
+   private static final class DigestingOutputStream extends OutputStream
+   {
+      private final MessageDigest digest;
+
+      DigestingOutputStream(MessageDigest digest) { this.digest = digest; }
+
+      @Override
+      public void write(int b) { digest.update((byte) b); }
+
+      @Override
+      public void write(byte[] b, int off, int len) { digest.update(b, off, len); }
+   }
+}
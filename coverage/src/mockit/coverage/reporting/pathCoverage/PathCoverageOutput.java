@@ -42,11 +42,9 @@ public final class PathCoverageOutput
 
    private void writePathCoverageInformationForMethod()
    {
-      List<Path> paths = currentMethod.getPaths();
-
-      if (paths.size() > 1) {
+      if (currentMethod.getTotalPaths() > 1) {
          writeHeaderForAllPaths();
-         pathFormatter.writeInformationForEachPath(paths);
+         pathFormatter.writeInformationForEachPath(currentMethod.getPaths());
          writeFooterForAllPaths();
       }
    }
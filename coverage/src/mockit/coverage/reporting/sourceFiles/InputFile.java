@@ -60,6 +60,7 @@ public final class InputFile
    }
 
    public boolean wasFileFound() { return sourceFile != null; }
+   public File getSourceFile() { return sourceFile; }
    String getSourceFileName() { return sourceFile.getName(); }
 
    String getSourceFilePath()
@@ -69,5 +70,5 @@ public final class InputFile
    }
 
    String nextLine() throws IOException { return input.readLine(); }
-   void close() throws IOException { input.close(); }
+   public void close() throws IOException { input.close(); }
 }
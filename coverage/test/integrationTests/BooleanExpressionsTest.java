@@ -4,9 +4,13 @@
  */
 package integrationTests;
 
+import java.util.*;
+
 import org.junit.*;
 import org.junit.runners.*;
 
+import mockit.coverage.paths.*;
+
 @FixMethodOrder(MethodSorters.JVM)
 public final class BooleanExpressionsTest extends CoverageTest
 {
@@ -149,4 +153,28 @@ public final class BooleanExpressionsTest extends CoverageTest
       assertPath(11, 0);
       assertPath(10, 2);
    }
+
+   @Test
+   public void methodWithTooManyConditionsWhosePathsAreOnlyCounted()
+   {
+      assertTrue(tested.methodWithTooManyConditionsForPathAnalysis(1, 2, true));
+      assertFalse(tested.methodWithTooManyConditionsForPathAnalysis(0, 0, false));
+      assertTrue(tested.methodWithTooManyConditionsForPathAnalysis(-1, 6, false));
+      assertTrue(tested.methodWithTooManyConditionsForPathAnalysis(1, 2, true));
+
+      findMethodData(91, "methodWithTooManyConditionsForPathAnalysis");
+      assertPaths(189, 3, 4);
+      assertTrue("Paths built in advance", methodData.paths.isEmpty());
+
+      List<Path> executedPaths = methodData.getPaths();
+      assertEquals(3, executedPaths.size());
+      int totalExecutions = 0;
+
+      for (Path path : executedPaths) {
+         assertFalse(path.isShadowed());
+         totalExecutions += path.getExecutionCount();
+      }
+
+      assertEquals(4, totalExecutions);
+   }
 }
@@ -47,9 +47,16 @@ public class CoverageTest extends Assert
       testedClassSimpleName = testedClass.getSimpleName();
    }
 
+   private static SortedMap<Integer, LineCoverageData> getLineToLineData()
+   {
+      // Counts gathered with "jmockit-coverage-engine=arrays" only reach the line data when explicitly added.
+      fileData.lineCoverageInfo.addCountsFromProbeArrays();
+      return fileData.lineCoverageInfo.lineToLineData;
+   }
+
    protected final void assertLines(int startingLine, int endingLine, int expectedLinesExecuted)
    {
-      SortedMap<Integer, LineCoverageData> lineToLineData = fileData.lineCoverageInfo.lineToLineData;
+      SortedMap<Integer, LineCoverageData> lineToLineData = getLineToLineData();
       assertTrue("Starting line not found", lineToLineData.containsKey(startingLine));
       assertTrue("Ending line not found", lineToLineData.containsKey(endingLine));
 
@@ -69,7 +76,7 @@ public class CoverageTest extends Assert
    protected final void assertLine(
       int line, int expectedSegments, int expectedCoveredSegments, int expectedExecutionCount)
    {
-      LineCoverageData lineData = fileData.lineCoverageInfo.lineToLineData.get(line);
+      LineCoverageData lineData = getLineToLineData().get(line);
       assertNotNull("Not an executable line", lineData);
       assertEquals("Segments:", expectedSegments, lineData.getNumberOfSegments());
       assertEquals("Covered segments:", expectedCoveredSegments, lineData.getNumberOfCoveredSegments());
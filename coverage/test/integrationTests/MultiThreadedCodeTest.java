@@ -28,4 +28,36 @@ public final class MultiThreadedCodeTest extends CoverageTest
       assertMethodLines(7, 17);
       assertPath(2, 1);
    }
+
+   @Test
+   public void operationExecutedConcurrentlyByManyThreads() throws Exception
+   {
+      final int executionsPerThread = 10000;
+      Thread[] workers = new Thread[4];
+
+      for (int i = 0; i < workers.length; i++) {
+         workers[i] = new Thread() {
+            @Override
+            public void run()
+            {
+               for (int j = 0; j < executionsPerThread; j++) {
+                  tested.operationExecutedConcurrently(j);
+               }
+            }
+         };
+         workers[i].start();
+      }
+
+      for (Thread worker : workers) {
+         worker.join();
+      }
+
+      int executions = workers.length * executionsPerThread;
+      assertLine(22, 1, 1, executions);
+      assertLine(23, 1, 1, executions);
+
+      findMethodData(22, "operationExecutedConcurrently");
+      assertPaths(1, 1, executions);
+      assertPath(2, executions);
+   }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package integrationTests;
+
+import org.junit.*;
+
+public final class RecursiveMethodsTest extends CoverageTest
+{
+   RecursiveMethods tested;
+
+   @Test
+   public void recursiveMethodWithBaseCaseAtStart()
+   {
+      assertEquals(6, tested.factorial(3));
+
+      findMethodData(7, "factorial");
+      assertPaths(2, 2, 3);
+      assertPath(4, 1);
+      assertPath(5, 2);
+   }
+
+   @Test
+   public void recursiveMethodWhoseCallersTakeDifferentPathsAfterTheRecursiveCallReturns()
+   {
+      assertEquals("oeo", tested.parities(3));
+
+      findMethodData(16, "parities");
+      assertPaths(3, 3, 4);
+      assertPath(6, 1);
+      assertPath(7, 2);
+      assertPath(5, 1);
+   }
+
+   @Test
+   public void recursionManyLevelsDeep()
+   {
+      assertEquals(50 * 51 / 2, tested.sumOfNestedCalls(50));
+
+      findMethodData(31, "sumOfNestedCalls");
+      assertPaths(2, 2, 51);
+      assertPath(5, 1);
+      assertPath(6, 50);
+   }
+
+   @Test
+   public void recursionAfterManyExecutionsEndedByExceptionFromCalledMethod()
+   {
+      for (int i = 0; i < 100; i++) {
+         try {
+            tested.sumOrFailFromCalledMethod(-1);
+            fail();
+         }
+         catch (IllegalArgumentException ignore) {}
+      }
+
+      assertEquals(6, tested.sumOrFailFromCalledMethod(3));
+
+      findMethodData(42, "sumOrFailFromCalledMethod");
+      assertPaths(3, 2, 4);
+      assertPath(4, 0);
+      assertPath(7, 1);
+      assertPath(8, 3);
+   }
+
+   @Test
+   public void recursionAfterManyExecutionsEndedByThrowingAnException()
+   {
+      for (int i = 0; i < 100; i++) {
+         try {
+            tested.sumOrFail(-1);
+            fail();
+         }
+         catch (IllegalArgumentException ignore) {}
+      }
+
+      assertEquals(6, tested.sumOrFail(3));
+
+      findMethodData(57, "sumOrFail");
+      assertPaths(3, 3, 104);
+      assertPath(4, 100);
+      assertPath(7, 1);
+      assertPath(8, 3);
+   }
+}
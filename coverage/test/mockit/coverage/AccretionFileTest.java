@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.io.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+public final class AccretionFileTest
+{
+   // A source file for which a class file exists, so that its data is kept when written.
+   static final String SOURCE_FILE = "mockit/coverage/AccretionFileTest.java";
+
+   @Rule public final TemporaryFolder outputDir = new TemporaryFolder();
+
+   @Test
+   public void mergeDataFromSeveralTestRunsIntoTheSameFile() throws Exception
+   {
+      for (int run = 0; run < 3; run++) {
+         new AccretionFile(outputDir.getRoot().getPath(), createData(2)).generate(true);
+      }
+
+      CoverageData writtenData = CoverageData.readDataFromFile(new File(outputDir.getRoot(), "coverage.ser"));
+      assertEquals(6, getExecutionCount(writtenData));
+   }
+
+   @Test
+   public void replaceExistingFileWithoutLeavingTemporaryFileBehind() throws Exception
+   {
+      String outputPath = outputDir.getRoot().getPath();
+      new AccretionFile(outputPath, createData(5)).generate(false);
+      new AccretionFile(outputPath, createData(1)).generate(false);
+
+      CoverageData writtenData = CoverageData.readDataFromFile(new File(outputPath, "coverage.ser"));
+      assertEquals(1, getExecutionCount(writtenData));
+      assertFalse(new File(outputPath, "coverage.ser.tmp").exists());
+   }
+
+   private static CoverageData createData(int executionCount)
+   {
+      CoverageData data = new CoverageData();
+      LineCoverageData lineData = data.addFile(SOURCE_FILE).addLine(5);
+
+      for (int i = 0; i < executionCount; i++) {
+         lineData.registerExecution(null);
+      }
+
+      return data;
+   }
+
+   private static int getExecutionCount(CoverageData data)
+   {
+      FileCoverageData fileData = data.getFileData(SOURCE_FILE);
+      return fileData.getLineToLineData().get(5).getExecutionCount();
+   }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class CallPointTest
+{
+   @Test
+   public void findCallPointForTestMethodInStackTrace() throws Exception
+   {
+      CallPoint callPoint = createFromCurrentStack();
+
+      assertNotNull(callPoint);
+      StackTraceElement ste = callPoint.getStackTraceElement();
+      assertEquals(CallPointTest.class.getName(), ste.getClassName());
+      assertEquals("findCallPointForTestMethodInStackTrace", ste.getMethodName());
+   }
+
+   @Test
+   public void keepSingleCallPointForTestMethodAfterManyClassesWithoutTestMethodsAreSeen() throws Exception
+   {
+      for (int i = 0; i <= 10000; i++) {
+         Map<String, CallPoint> testMethods = getTestMethods("pkg.NotATestClass" + i);
+         assertTrue(testMethods.isEmpty());
+      }
+
+      // A test class first seen after that, which therefore didn't get cached before.
+      TestClassSeenLast testClass = new TestClassSeenLast();
+      testClass.someTest();
+      CallPoint callPoint = testClass.callPoint;
+      testClass.someTest();
+
+      assertNotNull(callPoint);
+      assertEquals("someTest", callPoint.getStackTraceElement().getMethodName());
+      assertSame(callPoint, testClass.callPoint);
+      assertTrue(getTestMethods("pkg.NotATestClass0").isEmpty());
+   }
+
+   public static final class TestClassSeenLast
+   {
+      CallPoint callPoint;
+
+      @Test
+      public void someTest() throws Exception { callPoint = createFromCurrentStack(); }
+   }
+
+   private static CallPoint createFromCurrentStack() throws Exception
+   {
+      Method create = CallPoint.class.getDeclaredMethod("create", Throwable.class, int.class);
+      create.setAccessible(true);
+
+      // Frames to skip: this method only.
+      return (CallPoint) create.invoke(null, new Throwable(), 1);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, CallPoint> getTestMethods(String className) throws Exception
+   {
+      Method getTestMethods = CallPoint.class.getDeclaredMethod("getTestMethods", StackTraceElement.class);
+      getTestMethods.setAccessible(true);
+
+      StackTraceElement ste = new StackTraceElement(className, "someMethod", "Source.java", 1);
+      return (Map<String, CallPoint>) getTestMethods.invoke(null, ste);
+   }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+public final class DataFileMergingTest
+{
+   static final String SOURCE_FILE = "pkg/Source.java";
+
+   @Rule public final TemporaryFolder dataDir = new TemporaryFolder();
+
+   @Test
+   public void mergeSingleDataFile() throws Exception
+   {
+      File dataFile = createDataFile("single", 1, 3);
+
+      CoverageData mergedData = new DataFileMerging(new String[] {dataFile.getPath()}).merge();
+
+      assertEquals(3, getExecutionCount(mergedData));
+   }
+
+   @Test
+   public void mergeDataFilesInTheOrderGivenRegardlessOfWhichOnesAreReadFirst() throws Exception
+   {
+      // The first file determines the version of the source file whose data is kept; those for other versions are
+      // ignored, wherever they appear in the list.
+      String[] inputPaths = new String[12];
+      inputPaths[0] = createDataFile("first", 1, 1).getPath();
+
+      for (int i = 1; i < inputPaths.length; i++) {
+         boolean sameVersion = i % 2 == 0;
+         inputPaths[i] = createDataFile("other" + i, sameVersion ? 1 : 2, sameVersion ? 100 : 10).getPath();
+      }
+
+      for (int run = 0; run < 10; run++) {
+         CoverageData mergedData = new DataFileMerging(inputPaths).merge();
+         assertEquals(1 + 5 * 100, getExecutionCount(mergedData));
+      }
+   }
+
+   @Test
+   public void keepVersionFromFirstFileContainingTheSourceFileEvenWhenOtherFilesComeFirst() throws Exception
+   {
+      String[] inputPaths = new String[12];
+      inputPaths[0] = createDataFile("first", "pkg/Other.java", 1, 1).getPath();
+
+      for (int i = 1; i < inputPaths.length; i++) {
+         boolean firstVersion = i % 2 == 1;
+         inputPaths[i] = createDataFile("other" + i, firstVersion ? 2 : 1, firstVersion ? 10 : 100).getPath();
+      }
+
+      for (int run = 0; run < 10; run++) {
+         CoverageData mergedData = new DataFileMerging(inputPaths).merge();
+         assertEquals(6 * 10, getExecutionCount(mergedData));
+         assertNotNull(mergedData.getFileData("pkg/Other.java"));
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void failWhenNoInputFileExists() throws Exception
+   {
+      String missingFile = new File(dataDir.getRoot(), "missing.ser").getPath();
+
+      new DataFileMerging(new String[] {missingFile, " "}).merge();
+   }
+
+   private File createDataFile(String name, long lastModified, int executionCount) throws Exception
+   {
+      return createDataFile(name, SOURCE_FILE, lastModified, executionCount);
+   }
+
+   private File createDataFile(String name, String sourceFile, long lastModified, int executionCount)
+      throws Exception
+   {
+      CoverageData data = new CoverageData();
+      FileCoverageData fileData = data.addFile(sourceFile);
+      setLastModified(fileData, lastModified);
+
+      LineCoverageData lineData = fileData.addLine(5);
+
+      for (int i = 0; i < executionCount; i++) {
+         lineData.registerExecution(null);
+      }
+
+      File dataFile = new File(dataDir.getRoot(), name + ".ser");
+      data.writeDataToFile(dataFile);
+      return dataFile;
+   }
+
+   private static void setLastModified(FileCoverageData fileData, long lastModified) throws Exception
+   {
+      // Normally taken from the ".class" files of the source file, which don't exist here.
+      Field field = FileCoverageData.class.getDeclaredField("lastModified");
+      field.setAccessible(true);
+      field.setLong(fileData, lastModified);
+   }
+
+   private static int getExecutionCount(CoverageData mergedData)
+   {
+      FileCoverageData fileData = mergedData.getFileData(SOURCE_FILE);
+      return fileData.getLineToLineData().get(5).getExecutionCount();
+   }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.io.*;
+import javax.xml.parsers.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import org.w3c.dom.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.dataItems.*;
+import mockit.coverage.lines.*;
+
+public final class XmlFileTest
+{
+   @Rule public final TemporaryFolder outputDir = new TemporaryFolder();
+
+   final CoverageData coverageData = new CoverageData();
+
+   @Test
+   public void writeEmptyFileWhenThereIsNoCoverageData() throws Exception
+   {
+      Element coverage = generateAndParse();
+
+      assertEquals("coverage", coverage.getTagName());
+      assertEquals(0, coverage.getElementsByTagName("file").getLength());
+
+      NodeList totals = coverage.getElementsByTagName("total");
+      assertEquals(Metrics.amountActive(), totals.getLength());
+
+      for (int i = 0; i < totals.getLength(); i++) {
+         assertTotalAndCovered((Element) totals.item(i), 0, 0);
+      }
+   }
+
+   @Test
+   public void writeSourceFilesInPathOrderWithEscapedPaths() throws Exception
+   {
+      coverageData.addFile("pkg2/Second.java");
+      coverageData.addFile("pkg1/Third&\"Quoted\".java");
+      coverageData.addFile("pkg1/First.java");
+
+      NodeList files = generateAndParse().getElementsByTagName("file");
+
+      assertEquals(3, files.getLength());
+      assertEquals("pkg1/First.java", ((Element) files.item(0)).getAttribute("path"));
+      assertEquals("pkg1/Third&\"Quoted\".java", ((Element) files.item(1)).getAttribute("path"));
+      assertEquals("pkg2/Second.java", ((Element) files.item(2)).getAttribute("path"));
+   }
+
+   @Test
+   public void writeLineCountsAndLineMetricWithTotalsOverAllFiles() throws Exception
+   {
+      assumeTrue(Metrics.LineCoverage.isActive());
+
+      FileCoverageData fileData1 = coverageData.addFile("pkg/A.java");
+      LineCoverageData line3 = fileData1.addLine(3);
+      line3.registerExecution(null);
+      line3.registerExecution(null);
+      fileData1.addLine(4);
+
+      FileCoverageData fileData2 = coverageData.addFile("pkg/B.java");
+      fileData2.addLine(7).registerExecution(null);
+
+      Element coverage = generateAndParse();
+      Element fileA = (Element) coverage.getElementsByTagName("file").item(0);
+
+      NodeList lines = fileA.getElementsByTagName("line");
+      assertEquals(2, lines.getLength());
+      assertLine((Element) lines.item(0), 3, 2, 1, 1);
+      assertLine((Element) lines.item(1), 4, 0, 1, 0);
+
+      assertTotalAndCovered(findMetric(fileA, "metric", "name", "Line"), 2, 1);
+      assertTotalAndCovered(findMetric(coverage, "total", "metric", "Line"), 3, 2);
+   }
+
+   @Test
+   public void writeStaticAndInstanceFieldCounts() throws Exception
+   {
+      assumeTrue(Metrics.DataCoverage.isActive());
+
+      FileCoverageData fileData = coverageData.addFile("pkg/C.java");
+      PerFileDataCoverage dataInfo = fileData.dataCoverageInfo;
+      dataInfo.addField("pkg.C", "counter", true);
+      dataInfo.addField("pkg.C", "name", false);
+
+      int counterIndex = dataInfo.getFieldIndex("pkg.C.counter");
+      dataInfo.registerAssignmentToStaticField(counterIndex);
+      dataInfo.registerReadOfStaticField(counterIndex);
+      dataInfo.registerReadOfStaticField(counterIndex);
+
+      Element fileC = (Element) generateAndParse().getElementsByTagName("file").item(0);
+      NodeList fields = fileC.getElementsByTagName("field");
+
+      assertEquals(2, fields.getLength());
+      assertField((Element) fields.item(0), "pkg.C.counter", true, 2, 1, true);
+      assertField((Element) fields.item(1), "pkg.C.name", false, 0, 0, false);
+      assertTotalAndCovered(findMetric(fileC, "metric", "name", "Data"), 2, 1);
+   }
+
+   @Test
+   public void writeNothingForInactiveMetrics() throws Exception
+   {
+      String previousMetrics = System.getProperty("jmockit-coverage-metrics");
+      System.setProperty("jmockit-coverage-metrics", "path");
+
+      try {
+         coverageData.addFile("pkg/D.java").addLine(5).registerExecution(null);
+
+         Element coverage = generateAndParse();
+
+         assertEquals(0, coverage.getElementsByTagName("line").getLength());
+         assertNull(findMetric(coverage, "metric", "name", "Line"));
+         assertNull(findMetric(coverage, "total", "metric", "Line"));
+         assertNotNull(findMetric(coverage, "total", "metric", "Path"));
+      }
+      finally {
+         if (previousMetrics == null) {
+            System.clearProperty("jmockit-coverage-metrics");
+         }
+         else {
+            System.setProperty("jmockit-coverage-metrics", previousMetrics);
+         }
+      }
+   }
+
+   private Element generateAndParse() throws Exception
+   {
+      new XmlFile(outputDir.getRoot().getPath(), coverageData).generate();
+
+      File xmlFile = new File(outputDir.getRoot(), "coverage.xml");
+      assertTrue(xmlFile.isFile());
+
+      return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xmlFile).getDocumentElement();
+   }
+
+   private static Element findMetric(Element parent, String tagName, String nameAttribute, String metricName)
+   {
+      NodeList elements = parent.getElementsByTagName(tagName);
+
+      for (int i = 0; i < elements.getLength(); i++) {
+         Element element = (Element) elements.item(i);
+
+         if (metricName.equals(element.getAttribute(nameAttribute))) {
+            return element;
+         }
+      }
+
+      return null;
+   }
+
+   private static void assertTotalAndCovered(Element element, int total, int covered)
+   {
+      assertNotNull(element);
+      assertEquals(String.valueOf(total), element.getAttribute("total"));
+      assertEquals(String.valueOf(covered), element.getAttribute("covered"));
+   }
+
+   private static void assertLine(Element line, int number, int count, int segments, int coveredSegments)
+   {
+      assertEquals(String.valueOf(number), line.getAttribute("number"));
+      assertEquals(String.valueOf(count), line.getAttribute("count"));
+      assertEquals(String.valueOf(segments), line.getAttribute("segments"));
+      assertEquals(String.valueOf(coveredSegments), line.getAttribute("coveredSegments"));
+   }
+
+   private static void assertField(
+      Element field, String name, boolean isStatic, int reads, int writes, boolean covered)
+   {
+      assertEquals(name, field.getAttribute("name"));
+      assertEquals(String.valueOf(isStatic), field.getAttribute("static"));
+      assertEquals(String.valueOf(reads), field.getAttribute("reads"));
+      assertEquals(String.valueOf(writes), field.getAttribute("writes"));
+      assertEquals(String.valueOf(covered), field.getAttribute("covered"));
+   }
+}
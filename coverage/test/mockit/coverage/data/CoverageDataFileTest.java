@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.data;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.*;
+import mockit.coverage.lines.*;
+import mockit.coverage.paths.*;
+
+/**
+ * Reads and writes "<code>coverage.ser</code>" files in the binary format.
+ * The "<code>coverage-v1.ser</code>" and "<code>coverage-v2.ser</code>" files were written by previous versions of the
+ * coverage tool, when running {@code IfElseStatementsTest} and {@code BooleanExpressionsTest}.
+ */
+public final class CoverageDataFileTest
+{
+   static final String IF_ELSE_STATEMENTS = "integrationTests/IfElseStatements.java";
+   static final String BOOLEAN_EXPRESSIONS = "integrationTests/BooleanExpressions.java";
+
+   @Rule public final TemporaryFolder outputDir = new TemporaryFolder();
+
+   @Test
+   public void readDataFileInFirstVersionOfBinaryFormat() throws Exception
+   {
+      CoverageData data = readDataFile("coverage-v1.ser");
+
+      assertEquals(2, data.getFileToFileDataMap().size());
+      assertCoverage(data.getFileData(IF_ELSE_STATEMENTS), 77, 80, 33, 42);
+      assertCoverage(data.getFileData(BOOLEAN_EXPRESSIONS), 53, 90, 25, 100);
+
+      MethodCoverageData returnInput = getMethod(data.getFileData(IF_ELSE_STATEMENTS), "returnInput");
+      assertEquals(8, returnInput.getExecutionCount());
+      assertEquals(8, returnInput.getTotalPaths());
+   }
+
+   @Test
+   public void readDataFileInSecondVersionWithMethodWhosePathsAreOnlyCounted() throws Exception
+   {
+      CoverageData data = readDataFile("coverage-v2.ser");
+
+      assertCoverage(data.getFileData(IF_ELSE_STATEMENTS), 77, 80, 33, 42);
+      assertCoverage(data.getFileData(BOOLEAN_EXPRESSIONS), 53, 90, 25, 289);
+
+      MethodCoverageData methodWithCountedPaths =
+         getMethod(data.getFileData(BOOLEAN_EXPRESSIONS), "methodWithTooManyConditionsForPathAnalysis");
+      assertEquals(189, methodWithCountedPaths.getTotalPaths());
+      assertEquals(0, methodWithCountedPaths.getCoveredPaths());
+   }
+
+   @Test
+   public void writeDataReadFromFileInPreviousVersionAndReadItBack() throws Exception
+   {
+      for (String previousDataFile : new String[] {"coverage-v1.ser", "coverage-v2.ser"}) {
+         CoverageData previousData = readDataFile(previousDataFile);
+
+         CoverageData data = writeAndReadBack(previousData);
+
+         assertEquals(describe(previousData), describe(data));
+      }
+   }
+
+   @Test
+   public void writeLiveDataAndReadItBack() throws Exception
+   {
+      // The class only gets loaded, since the execution counts for its methods are checked by its own tests.
+      Class.forName("integrationTests.BooleanExpressions");
+      CoverageData liveData = CoverageData.instance();
+      liveData.addCountsFromProbeArrays();
+
+      CoverageData data = writeAndReadBack(liveData);
+
+      assertNotNull(getMethod(data.getFileData(BOOLEAN_EXPRESSIONS), "methodWithTooManyConditionsForPathAnalysis"));
+      assertEquals(describe(liveData), describe(data));
+   }
+
+   @Test
+   public void writeCallPointsWithRepetitionsAndReadThemBack() throws Exception
+   {
+      CoverageData data = new CoverageData();
+      data.setWithCallPoints(true);
+      LineCoverageData lineData = data.addFile("pkg/Source.java").addLine(5);
+      StackTraceElement testMethod = new StackTraceElement("pkg.SourceTest", "testSomething", "SourceTest.java", 12);
+      lineData.registerExecution(new CallPoint(testMethod));
+      lineData.registerExecution(new CallPoint(testMethod));
+      lineData.registerExecution(new CallPoint(new StackTraceElement("pkg.SourceTest", "another", null, 20)));
+
+      CoverageData dataReadBack = writeAndReadBack(data);
+
+      assertTrue(dataReadBack.isWithCallPoints());
+      LineCoverageData lineDataReadBack = dataReadBack.getFileData("pkg/Source.java").getLineToLineData().get(5);
+      assertEquals(3, lineDataReadBack.getExecutionCount());
+
+      List<CallPoint> callPoints = lineDataReadBack.getCallPoints();
+      assertEquals(2, callPoints.size());
+      assertEquals(testMethod, callPoints.get(0).getStackTraceElement());
+      assertEquals(2, callPoints.get(0).getExecutionCount());
+      assertEquals("another", callPoints.get(1).getStackTraceElement().getMethodName());
+      assertEquals(1, callPoints.get(1).getExecutionCount());
+   }
+
+   @Test
+   public void readDataFileInNewerVersion() throws Exception
+   {
+      File dataFile = outputDir.newFile("coverage.ser");
+      DataOutputStream output = new DataOutputStream(new FileOutputStream(dataFile));
+
+      try {
+         output.writeInt(CoverageOutput.MAGIC);
+         output.writeByte(CoverageOutput.VERSION + 1);
+      }
+      finally {
+         output.close();
+      }
+
+      try {
+         CoverageData.readDataFromFile(dataFile);
+         fail();
+      }
+      catch (IOException e) {
+         assertTrue(e.getMessage().contains("Unsupported version"));
+      }
+   }
+
+   private static CoverageData readDataFile(String fileName) throws IOException
+   {
+      return CoverageData.readDataFromFile(new File("test/mockit/coverage/data", fileName));
+   }
+
+   private CoverageData writeAndReadBack(CoverageData data) throws IOException
+   {
+      File dataFile = new File(outputDir.getRoot(), "coverage.ser");
+      data.writeDataToFile(dataFile);
+      return CoverageData.readDataFromFile(dataFile);
+   }
+
+   private static void assertCoverage(
+      FileCoverageData fileData, int coveredSegments, int totalSegments, int coveredPaths, int totalPaths)
+   {
+      assertEquals(coveredSegments, fileData.lineCoverageInfo.getCoveredItems());
+      assertEquals(totalSegments, fileData.lineCoverageInfo.getTotalItems());
+      assertEquals(coveredPaths, fileData.pathCoverageInfo.getCoveredItems());
+      assertEquals(totalPaths, fileData.pathCoverageInfo.getTotalItems());
+   }
+
+   private static MethodCoverageData getMethod(FileCoverageData fileData, String methodName)
+   {
+      for (MethodCoverageData methodData : fileData.getMethods()) {
+         if (methodName.equals(methodData.methodName)) {
+            return methodData;
+         }
+      }
+
+      throw new AssertionError("Missing method " + methodName);
+   }
+
+   private static String describe(CoverageData data)
+   {
+      StringBuilder description = new StringBuilder();
+
+      for (String sourceFile : new TreeSet<String>(data.getFileToFileDataMap().keySet())) {
+         description.append(describe(data, sourceFile));
+      }
+
+      return description.toString();
+   }
+
+   private static String describe(CoverageData data, String sourceFile)
+   {
+      FileCoverageData fileData = data.getFileData(sourceFile);
+      StringBuilder description = new StringBuilder(sourceFile).append('\n');
+
+      for (Map.Entry<Integer, LineCoverageData> lineAndData : fileData.getLineToLineData().entrySet()) {
+         LineCoverageData lineData = lineAndData.getValue();
+         description.append(lineAndData.getKey()).append(':').append(lineData.getExecutionCount()).append(' ');
+         description.append(lineData.getNumberOfCoveredSegments()).append('/');
+         description.append(lineData.getNumberOfSegments()).append('\n');
+      }
+
+      for (MethodCoverageData methodData : fileData.getMethods()) {
+         description.append(methodData.methodName).append(':').append(methodData.getExecutionCount()).append(' ');
+         description.append(methodData.getCoveredPaths()).append('/').append(methodData.getTotalPaths());
+
+         for (Path path : methodData.getPaths()) {
+            description.append(' ').append(path.getExecutionCount());
+         }
+
+         description.append('\n');
+      }
+
+      return description.toString();
+   }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.dataItems;
+
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.internal.state.*;
+
+public final class InstanceFieldDataTest
+{
+   @Test
+   public void unreadAssignmentsAreTheOnesFromTheFirstTestToAssignTheField()
+   {
+      InstanceFieldData fieldData = new InstanceFieldData();
+      Object firstOwner = new Object();
+      Object secondOwner = new Object();
+
+      // Test ids chosen so that the second one would come first if ordered by hash code.
+      while (TestRun.getTestId() % 16 != 15) {
+         TestRun.prepareForNextTest();
+      }
+
+      fieldData.registerAssignment(firstOwner);
+      TestRun.prepareForNextTest();
+      fieldData.registerAssignment(secondOwner);
+
+      List<Integer> ownerInstances = fieldData.getOwnerInstancesWithUnreadAssignments();
+
+      assertEquals(Arrays.asList(System.identityHashCode(firstOwner)), ownerInstances);
+   }
+
+   @Test
+   public void noUnreadAssignmentsWhenSomeTestReadsAllValuesItAssigned()
+   {
+      InstanceFieldData fieldData = new InstanceFieldData();
+      Object owner = new Object();
+
+      TestRun.prepareForNextTest();
+      fieldData.registerAssignment(owner);
+      TestRun.prepareForNextTest();
+      fieldData.registerAssignment(owner);
+      fieldData.registerRead(owner);
+
+      assertTrue(fieldData.isCovered());
+      assertTrue(fieldData.getOwnerInstancesWithUnreadAssignments().isEmpty());
+   }
+}
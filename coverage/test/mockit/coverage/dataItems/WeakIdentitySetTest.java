@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.dataItems;
+
+import java.lang.ref.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class WeakIdentitySetTest
+{
+   final WeakIdentitySet set = new WeakIdentitySet();
+
+   @Test
+   public void newSetIsEmpty()
+   {
+      assertTrue(set.isEmptyWithNoneCollected());
+      assertTrue(set.getIdentityHashCodes().isEmpty());
+   }
+
+   @Test
+   public void addSameObjectMoreThanOnce()
+   {
+      Object element = new Object();
+
+      set.add(element);
+      set.add(element);
+
+      assertFalse(set.isEmptyWithNoneCollected());
+      assertEquals(Arrays.asList(System.identityHashCode(element)), set.getIdentityHashCodes());
+   }
+
+   @Test
+   public void addEqualObjectsWhichAreNotTheSame()
+   {
+      String element1 = new String("test");
+      String element2 = new String("test");
+
+      set.add(element1);
+      set.add(element2);
+
+      assertEquals(2, set.getIdentityHashCodes().size());
+   }
+
+   @Test
+   public void removeElements()
+   {
+      Object element1 = new Object();
+      Object element2 = new Object();
+      set.add(element1);
+      set.add(element2);
+
+      set.remove(element1);
+      set.remove(new Object());
+
+      assertEquals(Arrays.asList(System.identityHashCode(element2)), set.getIdentityHashCodes());
+
+      set.remove(element2);
+
+      assertTrue(set.isEmptyWithNoneCollected());
+   }
+
+   @Test
+   public void addManyElements()
+   {
+      List<Object> elements = new ArrayList<Object>();
+      Set<Integer> hashCodes = new HashSet<Integer>();
+
+      for (int i = 0; i < 1000; i++) {
+         Object element = new Object();
+         elements.add(element);
+         hashCodes.add(System.identityHashCode(element));
+         set.add(element);
+      }
+
+      assertEquals(elements.size(), set.getIdentityHashCodes().size());
+      assertEquals(hashCodes, new HashSet<Integer>(set.getIdentityHashCodes()));
+
+      for (Object element : elements) {
+         set.remove(element);
+      }
+
+      assertTrue(set.isEmptyWithNoneCollected());
+   }
+
+   @Test
+   public void elementCollectedWhileInTheSetIsStillCounted() throws Exception
+   {
+      Object element = new Object();
+      WeakReference<Object> reference = new WeakReference<Object>(element);
+      set.add(element);
+      //noinspection UnusedAssignment
+      element = null;
+
+      waitUntilCollected(reference);
+
+      assertTrue(set.getIdentityHashCodes().isEmpty());
+      assertFalse(set.isEmptyWithNoneCollected());
+   }
+
+   @Test
+   public void elementRemovedBeforeBeingCollectedIsNotCounted() throws Exception
+   {
+      Object element = new Object();
+      WeakReference<Object> reference = new WeakReference<Object>(element);
+      set.add(element);
+      set.remove(element);
+      //noinspection UnusedAssignment
+      element = null;
+
+      waitUntilCollected(reference);
+
+      assertTrue(set.isEmptyWithNoneCollected());
+   }
+
+   private static void waitUntilCollected(Reference<?> reference) throws InterruptedException
+   {
+      for (int i = 0; i < 100 && reference.get() != null; i++) {
+         System.gc();
+         Thread.sleep(10);
+      }
+
+      assertNull("Element not collected", reference.get());
+   }
+}
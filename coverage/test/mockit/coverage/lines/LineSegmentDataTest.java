@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.lines;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+
+public final class LineSegmentDataTest
+{
+   static CallPoint callPoint(String testMethod)
+   {
+      return new CallPoint(new StackTraceElement("pkg.SomeTest", testMethod, "SomeTest.java", -1));
+   }
+
+   static LineCoverageData newLineData() { return new FileCoverageData().addLine(5); }
+
+   @Test
+   public void keepOneCallPointPerLocationWithItsExecutionCount()
+   {
+      LineCoverageData lineData = newLineData();
+      CallPoint first = callPoint("first");
+
+      lineData.registerExecution(first);
+      lineData.registerExecution(callPoint("second"));
+      lineData.registerExecution(first);
+      lineData.registerExecution(callPoint("second"));
+      lineData.registerExecution(first);
+
+      assertEquals(5, lineData.getExecutionCount());
+      assertCallPoints(lineData, "first", 3, "second", 2);
+   }
+
+   @Test
+   public void mergeCallPointsFromPreviousTestRunByLocation()
+   {
+      LineCoverageData previousData = newLineData();
+      previousData.registerExecution(callPoint("a"));
+      previousData.registerExecution(callPoint("a"));
+      previousData.registerExecution(callPoint("b"));
+
+      LineCoverageData lineData = newLineData();
+      lineData.registerExecution(callPoint("b"));
+      lineData.registerExecution(callPoint("c"));
+
+      lineData.addCountsFromPreviousTestRun(previousData);
+
+      assertEquals(5, lineData.getExecutionCount());
+      assertCallPoints(lineData, "a", 2, "b", 2, "c", 1);
+   }
+
+   @Test
+   public void takeCallPointsFromPreviousTestRunWhenThereAreNoneYet()
+   {
+      LineCoverageData previousData = newLineData();
+      previousData.registerExecution(callPoint("a"));
+
+      LineCoverageData lineData = newLineData();
+      lineData.addCountsFromPreviousTestRun(previousData);
+      lineData.registerExecution(callPoint("a"));
+
+      assertCallPoints(lineData, "a", 2);
+   }
+
+   @Test
+   public void keepCallPointsThroughJavaSerialization() throws Exception
+   {
+      LineCoverageData lineData = newLineData();
+      lineData.registerExecution(callPoint("a"));
+      lineData.registerExecution(callPoint("b"));
+      lineData.registerExecution(callPoint("a"));
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream output = new ObjectOutputStream(bytes);
+      output.writeObject(lineData);
+      output.close();
+
+      ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      LineCoverageData readData = (LineCoverageData) input.readObject();
+
+      assertEquals(3, readData.getExecutionCount());
+      assertCallPoints(readData, "a", 2, "b", 1);
+
+      readData.registerExecution(callPoint("b"));
+      assertCallPoints(readData, "a", 2, "b", 2);
+   }
+
+   static void assertCallPoints(LineSegmentData segmentData, Object... testMethodsAndCounts)
+   {
+      List<CallPoint> callPoints = segmentData.getCallPoints();
+      assertEquals(testMethodsAndCounts.length / 2, callPoints.size());
+
+      for (int i = 0; i < callPoints.size(); i++) {
+         CallPoint callPoint = callPoints.get(i);
+         assertEquals(testMethodsAndCounts[2 * i], callPoint.getStackTraceElement().getMethodName());
+         assertEquals(testMethodsAndCounts[2 * i + 1], callPoint.getExecutionCount());
+      }
+   }
+}
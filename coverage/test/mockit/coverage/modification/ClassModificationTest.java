@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.lang.instrument.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class ClassModificationTest
+{
+   static final class FirstClass { int getValue() { return 1; } }
+   static final class SecondClass { int getValue() { return 2; } }
+   static final class ThirdClass { int getValue() { return 3; } }
+
+   @Test
+   public void redefineAllClassesWhenNoneFails() throws Exception
+   {
+      List<ClassDefinition> classDefs = Arrays.asList(
+         originalDefinition(FirstClass.class), originalDefinition(SecondClass.class),
+         originalDefinition(ThirdClass.class));
+
+      List<Class<?>> redefinedClasses = ClassModification.redefineClasses(classDefs);
+
+      assertEquals(Arrays.<Class<?>>asList(FirstClass.class, SecondClass.class, ThirdClass.class), redefinedClasses);
+   }
+
+   @Test
+   public void skipOnlyTheClassWhichCannotBeRedefined() throws Exception
+   {
+      List<ClassDefinition> classDefs = Arrays.asList(
+         originalDefinition(FirstClass.class), new ClassDefinition(SecondClass.class, new byte[] {1, 2, 3}),
+         originalDefinition(ThirdClass.class));
+
+      List<Class<?>> redefinedClasses = ClassModification.redefineClasses(classDefs);
+
+      assertEquals(Arrays.<Class<?>>asList(FirstClass.class, ThirdClass.class), redefinedClasses);
+      assertEquals(1, new FirstClass().getValue());
+      assertEquals(2, new SecondClass().getValue());
+      assertEquals(3, new ThirdClass().getValue());
+   }
+
+   @Test
+   public void skipSingleClassWhichCannotBeRedefined()
+   {
+      List<ClassDefinition> classDefs =
+         Collections.singletonList(new ClassDefinition(SecondClass.class, new byte[] {1, 2, 3}));
+
+      List<Class<?>> redefinedClasses = ClassModification.redefineClasses(classDefs);
+
+      assertTrue(redefinedClasses.isEmpty());
+   }
+
+   private static ClassDefinition originalDefinition(Class<?> aClass) throws IOException
+   {
+      String classFile = aClass.getName().replace('.', '/') + ".class";
+      InputStream input = ClassModificationTest.class.getClassLoader().getResourceAsStream(classFile);
+      ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+
+      try {
+         byte[] buffer = new byte[4096];
+
+         for (int n = input.read(buffer); n >= 0; n = input.read(buffer)) {
+            bytecode.write(buffer, 0, n);
+         }
+      }
+      finally {
+         input.close();
+      }
+
+      return new ClassDefinition(aClass, bytecode.toByteArray());
+   }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.paths.*;
+import mockit.external.asm4.*;
+import static mockit.external.asm4.Opcodes.*;
+
+public final class InstrumentedClassCacheTest
+{
+   // In the "mockit" package, so that the class is never instrumented by the coverage tool running these tests.
+   static final String CLASS_NAME = "mockit/coverage/modification/CachedClass";
+   static final String SOURCE_FILE = CLASS_NAME + ".java";
+   static final String PREVIOUS_SOURCE_FILE = "mockit/coverage/modification/PreviousClass.java";
+
+   @Rule public final TemporaryFolder cacheDir = new TemporaryFolder();
+   private InstrumentedClassCache cache;
+
+   @Before
+   public void createCache()
+   {
+      Assume.assumeTrue(!"arrays".equals(System.getProperty("jmockit-coverage-engine")));
+
+      System.setProperty("jmockit-coverage-cacheDir", cacheDir.getRoot().getPath());
+
+      try {
+         cache = InstrumentedClassCache.createIfEnabled();
+      }
+      finally {
+         System.clearProperty("jmockit-coverage-cacheDir");
+      }
+
+      assertNotNull(cache);
+   }
+
+   @After
+   public void removeDataForTestSourceFiles() throws Exception
+   {
+      Map<String, FileCoverageData> fileToFileData = getFileToFileDataMap();
+      fileToFileData.remove(PREVIOUS_SOURCE_FILE);
+      fileToFileData.remove(SOURCE_FILE);
+   }
+
+   @Test
+   public void loadClassFromCacheInLaterTestRunWhenFirstLineOfMethodEqualsFileIndex() throws Exception
+   {
+      // Source files get consecutive indexes, and line numbers start at 1.
+      int fileIndex = CoverageData.instance().addFile(PREVIOUS_SOURCE_FILE).getIndex() + 1;
+      byte[] originalClassfile = generateClassWithMethodStartingAtLine(fileIndex);
+
+      CoverageModifier modifier = instrument(originalClassfile);
+      assertEquals(fileIndex, modifier.getFileData().getIndex());
+      assertTrue(modifier.isCacheable());
+      cache.addModifiedClass(modifier, modifier.toByteArray());
+
+      // In a later test run, the source file gets a different index.
+      getFileToFileDataMap().remove(SOURCE_FILE);
+      byte[] cachedClassfile = cache.getModifiedClass(CLASS_NAME.replace('/', '.'), originalClassfile);
+      assertNotNull(cachedClassfile);
+
+      FileCoverageData fileData = CoverageData.instance().getFileData(SOURCE_FILE);
+      assertTrue(fileData.getIndex() != fileIndex);
+
+      Method abs = new CachedClassLoader(cachedClassfile).getCachedClass().getMethod("abs", int.class);
+      assertEquals(1, abs.invoke(null, -1));
+      assertEquals(2, abs.invoke(null, 2));
+
+      MethodCoverageData methodData = fileData.pathCoverageInfo.firstLineToMethodData.get(fileIndex);
+      assertEquals(2, methodData.getExecutionCount());
+      assertEquals(2, methodData.getCoveredPaths());
+      assertEquals(2, fileData.lineCoverageInfo.lineToLineData.get(fileIndex).getExecutionCount());
+   }
+
+   @Test
+   public void doNotLoadClassFromCacheWhenDataForItsSourceFileWasAlreadyAdded() throws Exception
+   {
+      byte[] originalClassfile = generateClassWithMethodStartingAtLine(10);
+      CoverageModifier modifier = instrument(originalClassfile);
+      cache.addModifiedClass(modifier, modifier.toByteArray());
+
+      byte[] cachedClassfile = cache.getModifiedClass(CLASS_NAME.replace('/', '.'), originalClassfile);
+
+      assertNull(cachedClassfile);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, FileCoverageData> getFileToFileDataMap() throws Exception
+   {
+      Field field = CoverageData.class.getDeclaredField("fileToFileData");
+      field.setAccessible(true);
+      return (Map<String, FileCoverageData>) field.get(CoverageData.instance());
+   }
+
+   private static byte[] generateClassWithMethodStartingAtLine(int firstLine)
+   {
+      ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+      cw.visit(V1_5, ACC_PUBLIC + ACC_SUPER, CLASS_NAME, null, "java/lang/Object", null);
+      cw.visitSource("CachedClass.java", null);
+
+      // public static int abs(int value) { if (value < 0) return -value; return value; }
+      MethodVisitor mv = cw.visitMethod(ACC_PUBLIC + ACC_STATIC, "abs", "(I)I", null, null);
+      mv.visitCode();
+
+      Label start = new Label();
+      mv.visitLabel(start);
+      mv.visitLineNumber(firstLine, start);
+      mv.visitVarInsn(ILOAD, 0);
+      Label notNegative = new Label();
+      mv.visitJumpInsn(IFGE, notNegative);
+      mv.visitVarInsn(ILOAD, 0);
+      mv.visitInsn(INEG);
+      mv.visitInsn(IRETURN);
+
+      mv.visitLabel(notNegative);
+      mv.visitLineNumber(firstLine + 1, notNegative);
+      mv.visitVarInsn(ILOAD, 0);
+      mv.visitInsn(IRETURN);
+
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+      cw.visitEnd();
+
+      return cw.toByteArray();
+   }
+
+   private static CoverageModifier instrument(byte[] originalClassfile)
+   {
+      ClassReader cr = new ClassReader(originalClassfile);
+      CoverageModifier modifier = new CoverageModifier(cr, false, true);
+      cr.accept(modifier, 0);
+      return modifier;
+   }
+
+   private static final class CachedClassLoader extends ClassLoader
+   {
+      private final byte[] classfile;
+
+      CachedClassLoader(byte[] classfile)
+      {
+         super(InstrumentedClassCacheTest.class.getClassLoader());
+         this.classfile = classfile;
+      }
+
+      Class<?> getCachedClass() { return defineClass(CLASS_NAME.replace('/', '.'), classfile, 0, classfile.length); }
+   }
+}
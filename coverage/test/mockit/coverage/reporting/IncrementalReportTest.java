@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting;
+
+import java.io.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+public final class IncrementalReportTest
+{
+   static final String SOURCE_FILE = "pkg/Source.java";
+   static final long OLD_TIMESTAMP = 1000000000000L;
+
+   @Rule public final TemporaryFolder tempDir = new TemporaryFolder();
+
+   File srcDir;
+   String outputDir;
+   File page;
+   CoverageData coverageData;
+   LineCoverageData lineData;
+
+   @Before
+   public void createSourceFileAndCoverageData() throws IOException
+   {
+      srcDir = tempDir.newFolder("src");
+      writeSourceFile("package pkg;\n\npublic class Source\n{\n   int value() { return 1; }\n}\n");
+
+      outputDir = new File(tempDir.getRoot(), "report").getPath();
+      page = OutputFile.getOutputFile(outputDir, SOURCE_FILE);
+
+      coverageData = new CoverageData();
+      FileCoverageData fileData = coverageData.addFile(SOURCE_FILE);
+      lineData = fileData.addLine(5);
+      lineData.registerExecution(null);
+   }
+
+   private void writeSourceFile(String contents) throws IOException
+   {
+      File sourceFile = new File(srcDir, SOURCE_FILE);
+      sourceFile.getParentFile().mkdirs();
+
+      Writer output = new FileWriter(sourceFile);
+      try { output.write(contents); } finally { output.close(); }
+   }
+
+   @After
+   public void clearIncrementalMode()
+   {
+      System.clearProperty("jmockit-coverage-incremental");
+   }
+
+   @Test
+   public void keepPageWhenNeitherSourceFileNorCoverageDataChanged() throws Exception
+   {
+      System.setProperty("jmockit-coverage-incremental", "true");
+      generateReport();
+      assertTrue(new File(outputDir, "pageDigests.properties").isFile());
+      markPageAsOld();
+
+      generateReport();
+
+      assertEquals(OLD_TIMESTAMP, page.lastModified());
+   }
+
+   @Test
+   public void regeneratePageWhenCoverageDataChanged() throws Exception
+   {
+      System.setProperty("jmockit-coverage-incremental", "true");
+      generateReport();
+      markPageAsOld();
+
+      lineData.registerExecution(null);
+      generateReport();
+
+      assertPageWasRegenerated();
+   }
+
+   @Test
+   public void regeneratePageWhenSourceFileChanged() throws Exception
+   {
+      System.setProperty("jmockit-coverage-incremental", "true");
+      generateReport();
+      markPageAsOld();
+
+      writeSourceFile("package pkg;\n\npublic class Source\n{\n   int value() { return 2; }\n}\n");
+      generateReport();
+
+      assertPageWasRegenerated();
+   }
+
+   @Test
+   public void regeneratePageWhenItNoLongerExists() throws Exception
+   {
+      System.setProperty("jmockit-coverage-incremental", "true");
+      generateReport();
+      assertTrue(page.delete());
+
+      generateReport();
+
+      assertTrue(page.isFile());
+   }
+
+   @Test
+   public void regeneratePageWhenDigestsFromPreviousReportAreMissing() throws Exception
+   {
+      System.setProperty("jmockit-coverage-incremental", "true");
+      generateReport();
+      markPageAsOld();
+      assertTrue(new File(outputDir, "pageDigests.properties").delete());
+
+      generateReport();
+
+      assertPageWasRegenerated();
+   }
+
+   @Test
+   public void alwaysRegeneratePageWhenNotInIncrementalMode() throws Exception
+   {
+      generateReport();
+      assertFalse(new File(outputDir, "pageDigests.properties").exists());
+      markPageAsOld();
+
+      generateReport();
+
+      assertPageWasRegenerated();
+   }
+
+   private void generateReport() throws IOException
+   {
+      new FullCoverageReport(outputDir, new String[] {srcDir.getPath()}, coverageData).generate();
+   }
+
+   private void markPageAsOld()
+   {
+      assertTrue(page.isFile());
+      assertTrue(page.setLastModified(OLD_TIMESTAMP));
+   }
+
+   private void assertPageWasRegenerated()
+   {
+      assertTrue(page.isFile());
+      assertTrue(page.lastModified() > OLD_TIMESTAMP);
+   }
+}
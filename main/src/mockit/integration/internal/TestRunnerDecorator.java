@@ -139,6 +139,8 @@ public class TestRunnerDecorator
 
    protected final void createInstancesForTestedFields(Object target)
    {
+      TestRun.startCreatingTestFixture();
+
       SharedFieldTypeRedefinitions sharedRedefinitions = TestRun.getSharedFieldTypeRedefinitions();
 
       if (sharedRedefinitions != null) {
@@ -160,6 +162,8 @@ public class TestRunnerDecorator
    protected final Object[] createInstancesForMockParameters(
       Object target, Method testMethod, Object[] parameterValues, SavePoint savePoint)
    {
+      TestRun.startCreatingTestFixture();
+
       if (testMethod.getParameterTypes().length == 0) {
          return null;
       }
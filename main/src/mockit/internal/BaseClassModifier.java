@@ -186,7 +186,15 @@ public class BaseClassModifier extends ClassVisitor
          mw.visitInsn(ACONST_NULL);
       }
       else if (value instanceof Integer) {
-         mw.visitIntInsn(SIPUSH, (Integer) value);
+         int intValue = (Integer) value;
+
+         if (intValue == (short) intValue) {
+            mw.visitIntInsn(SIPUSH, intValue);
+         }
+         else {
+            mw.visitLdcInsn(intValue);
+         }
+
          mw.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
       }
       else if (value instanceof Boolean) {
@@ -96,10 +96,8 @@ public abstract class MockingBridge extends Logger implements InvocationHandler
       }
    }
 
-   protected static Object[] extractMockArguments(Object[] args)
+   protected static Object[] extractMockArguments(Object[] args, int i)
    {
-      int i = 7;
-
       if (args.length > i) {
          Object[] mockArgs = new Object[args.length - i];
          System.arraycopy(args, i, mockArgs, 0, mockArgs.length);
@@ -36,14 +36,17 @@ public final class MockMethodBridge extends MockingBridge
       int mockStateIndex = (Integer) args[4];
       int mockInstanceIndex = (Integer) args[5];
       boolean startupMock = (Boolean) args[6];
-      Object[] mockArgs = extractMockArguments(args);
+      Object[] mockArgs = extractMockArguments(args, 7);
 
       return callMock(
          mocked, callingInstanceMethod, mockClassDesc, mockName, mockDesc, mockStateIndex, mockInstanceIndex,
          startupMock, mockArgs);
    }
 
-   private static Object callMock(
+   /**
+    * Only to be called from generated bytecode, when the real class can see JMockit classes, or from {@link #invoke}.
+    */
+   public static Object callMock(
       Object mocked, boolean callingInstanceMethod, String mockClassInternalName, String mockName, String mockDesc,
       int mockStateIndex, int mockInstanceIndex, boolean startupMock, Object[] mockArgs) throws Throwable
    {
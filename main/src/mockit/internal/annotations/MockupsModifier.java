@@ -38,6 +38,7 @@ final class MockupsModifier extends BaseClassModifier
    private final MockingConfiguration mockingCfg;
 
    private final boolean useMockingBridgeForUpdatingMockState;
+   private boolean mockClassNotAccessible;
    private Class<?> mockedClass;
 
    // Helper fields:
@@ -93,10 +94,7 @@ final class MockupsModifier extends BaseClassModifier
    private void inferUseOfMockingBridge(ClassLoader classLoaderOfRealClass, Object mock)
    {
       setUseMockingBridge(classLoaderOfRealClass);
-
-      if (!useMockingBridge && mock != null && !isPublic(mock.getClass().getModifiers())) {
-         useMockingBridge = true;
-      }
+      mockClassNotAccessible = mock != null && !isPublic(mock.getClass().getModifiers());
    }
 
    private MockupsModifier(
@@ -379,8 +377,8 @@ final class MockupsModifier extends BaseClassModifier
 
    private void generateStaticMethodCall(int access)
    {
-      if (shouldUseMockingBridge()) {
-         generateCallToMockMethodThroughMockingBridge(false, access);
+      if (shouldCallMockMethodThroughReflection()) {
+         generateCallToMockMethodThroughReflection(false, access);
       }
       else {
          generateMethodOrConstructorArguments(access);
@@ -388,7 +386,20 @@ final class MockupsModifier extends BaseClassModifier
       }
    }
 
-   private boolean shouldUseMockingBridge() { return useMockingBridge || mockMethod.hasInvocationParameter; }
+   private boolean shouldCallMockMethodThroughReflection()
+   {
+      return useMockingBridge || mockClassNotAccessible || mockMethod.hasInvocationParameter;
+   }
+
+   private void generateCallToMockMethodThroughReflection(boolean callingInstanceMethod, int access)
+   {
+      if (useMockingBridge) {
+         generateCallToMockMethodThroughMockingBridge(callingInstanceMethod, access);
+      }
+      else {
+         generateDirectCallToMockMethodBridge(callingInstanceMethod, access);
+      }
+   }
 
    private void generateCallToMockMethodThroughMockingBridge(boolean callingInstanceMethod, int access)
    {
@@ -415,10 +426,35 @@ final class MockupsModifier extends BaseClassModifier
       generateCallToInvocationHandler();
    }
 
+   /**
+    * Generates a static call to the mock method bridge, for a real class which can see JMockit classes, avoiding the
+    * lookup of the bridge instance and the boxing of the arguments which describe the mock method.
+    */
+   private void generateDirectCallToMockMethodBridge(boolean callingInstanceMethod, int access)
+   {
+      boolean isStatic = generateCodeToPassThisOrNullIfStaticMethod(access);
+      mw.visitInsn(callingInstanceMethod ? ICONST_1 : ICONST_0);
+      mw.visitLdcInsn(annotatedMocks.getMockClassInternalName());
+      mw.visitLdcInsn(mockMethod.name);
+      mw.visitLdcInsn(mockMethod.desc);
+      mw.visitIntInsn(SIPUSH, mockMethod.getIndexForMockState());
+      mw.visitIntInsn(SIPUSH, mockInstanceIndex);
+      mw.visitInsn(forStartupMock ? ICONST_1 : ICONST_0);
+
+      Type[] argTypes = Type.getArgumentTypes(methodDesc);
+      generateCodeToCreateArrayOfObject(argTypes.length);
+      generateCodeToPassMethodArgumentsAsVarargs(argTypes, 0, isStatic ? 0 : 1);
+
+      mw.visitMethodInsn(
+         INVOKESTATIC, "mockit/internal/annotations/MockMethodBridge", "callMock",
+         "(Ljava/lang/Object;ZLjava/lang/String;Ljava/lang/String;Ljava/lang/String;IIZ[Ljava/lang/Object;)" +
+         "Ljava/lang/Object;");
+   }
+
    private void generateInstanceMethodCall(int access)
    {
-      if (shouldUseMockingBridge()) {
-         generateCallToMockMethodThroughMockingBridge(true, access);
+      if (shouldCallMockMethodThroughReflection()) {
+         generateCallToMockMethodThroughReflection(true, access);
          return;
       }
 
@@ -498,7 +534,7 @@ final class MockupsModifier extends BaseClassModifier
 
    private void generateMethodReturn()
    {
-      if (shouldUseMockingBridge()) {
+      if (shouldCallMockMethodThroughReflection()) {
          generateReturnWithObjectAtTopOfTheStack(methodDesc);
       }
       else {
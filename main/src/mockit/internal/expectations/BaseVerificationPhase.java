@@ -39,8 +39,8 @@ public abstract class BaseVerificationPhase extends TestOnlyPhase
 
    @Override
    final Object handleInvocation(
-      Object mock, int access, String mockClassDesc, String mockNameAndDesc, String genericSignature,
-      String exceptions, boolean withRealImpl, Object[] args)
+      Object mock, int access, String mockClassDesc, String mockNameAndDesc, String mockedMethodKey,
+      String genericSignature, String[] exceptions, boolean withRealImpl, Object[] args)
    {
       if (pendingError != null) {
          recordAndReplay.setErrorThrown(pendingError);
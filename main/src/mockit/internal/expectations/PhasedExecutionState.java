@@ -9,6 +9,7 @@ import java.util.*;
 import static mockit.internal.util.Utilities.containsReference;
 
 import mockit.internal.expectations.invocation.*;
+import mockit.internal.expectations.mocking.*;
 import mockit.internal.state.*;
 import mockit.internal.util.*;
 
@@ -16,6 +17,7 @@ final class PhasedExecutionState
 {
    final List<Expectation> expectations;
    final List<Expectation> nonStrictExpectations;
+   private final Map<String, List<Expectation>> nonStrictExpectationsByMethod;
    final List<VerifiedExpectation> verifiedExpectations;
    final Map<Object, Object> instanceMap;
    final Map<Object, Object> replacementMap;
@@ -26,6 +28,7 @@ final class PhasedExecutionState
    {
       expectations = new ArrayList<Expectation>();
       nonStrictExpectations = new ArrayList<Expectation>();
+      nonStrictExpectationsByMethod = new HashMap<String, List<Expectation>>();
       verifiedExpectations = new ArrayList<VerifiedExpectation>();
       instanceMap = new IdentityHashMap<Object, Object>();
       replacementMap = new IdentityHashMap<Object, Object>();
@@ -70,6 +73,7 @@ final class PhasedExecutionState
 
       if (nonStrict) {
          nonStrictExpectations.add(expectation);
+         getNonStrictExpectations(invocation.getMethodKey(), true).add(expectation);
       }
       else {
          expectations.add(expectation);
@@ -111,10 +115,34 @@ final class PhasedExecutionState
 
       if (previousExpectation != null) {
          nonStrictExpectations.remove(previousExpectation);
+         getNonStrictExpectations(invocation.getMethodKey(), false).remove(previousExpectation);
          invocation.copyDefaultReturnValue(previousExpectation.invocation);
       }
    }
 
+   /**
+    * Returns the non-strict expectations which can match invocations to the given method, in the order they appear in
+    * {@link #nonStrictExpectations}.
+    * Since a recorded method matches an invoked one with a different but assignable return type, expectations are
+    * grouped by {@linkplain MockedMethod#getMethodKey method key}, which leaves out the return type; return types are
+    * checked later.
+    */
+   private List<Expectation> getNonStrictExpectations(String mockedMethodKey, boolean create)
+   {
+      List<Expectation> expectationsForMethod = nonStrictExpectationsByMethod.get(mockedMethodKey);
+
+      if (expectationsForMethod == null) {
+         if (!create) {
+            return Collections.emptyList();
+         }
+
+         expectationsForMethod = new ArrayList<Expectation>(2);
+         nonStrictExpectationsByMethod.put(mockedMethodKey, expectationsForMethod);
+      }
+
+      return expectationsForMethod;
+   }
+
    private Expectation findPreviousNonStrictExpectation(ExpectedInvocation newInvocation)
    {
       Object mock = newInvocation.instance;
@@ -125,9 +153,10 @@ final class PhasedExecutionState
 
       boolean staticOrConstructorInvocation = mock == null || newInvocation.isConstructor();
       boolean newInvocationWithMatchers = arguments.getMatchers() != null;
+      List<Expectation> candidates = getNonStrictExpectations(newInvocation.getMethodKey(), false);
 
-      for (int i = 0, n = nonStrictExpectations.size(); i < n; i++) {
-         Expectation previousExpectation = nonStrictExpectations.get(i);
+      for (int i = 0, n = candidates.size(); i < n; i++) {
+         Expectation previousExpectation = candidates.get(i);
          ExpectedInvocation previousInvocation = previousExpectation.invocation;
 
          if (
@@ -143,15 +172,17 @@ final class PhasedExecutionState
       return null;
    }
 
-   Expectation findNonStrictExpectation(Object mock, String mockClassDesc, String mockNameAndDesc, Object[] args)
+   Expectation findNonStrictExpectation(
+      Object mock, String mockClassDesc, String mockNameAndDesc, String mockedMethodKey, Object[] args)
    {
       boolean constructorInvocation = mockNameAndDesc.charAt(0) == '<';
       boolean staticOrConstructorInvocation = mock == null || constructorInvocation;
       Expectation replayExpectationFound = null;
+      List<Expectation> candidates = getNonStrictExpectations(mockedMethodKey, false);
 
       // Note: new expectations might get added to the list, so a regular loop would cause a CME:
-      for (int i = 0, n = nonStrictExpectations.size(); i < n; i++) {
-         Expectation nonStrict = nonStrictExpectations.get(i);
+      for (int i = 0, n = candidates.size(); i < n; i++) {
+         Expectation nonStrict = candidates.get(i);
 
          if (replayExpectationFound != null && nonStrict.recordPhase == null) {
             continue;
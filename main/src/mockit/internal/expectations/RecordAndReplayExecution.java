@@ -199,14 +199,24 @@ public final class RecordAndReplayExecution
    Error getErrorThrown() { return failureState.getErrorThrown(); }
    void setErrorThrown(Error error) { failureState.setErrorThrown(error); }
 
+   /**
+    * Only to be called from generated bytecode, with the id of a {@link MockedMethod}.
+    */
+   public static Object recordOrReplay(Object mock, int mockedMethodId, Object[] args) throws Throwable
+   {
+      return recordOrReplay(mock, MockedMethod.get(mockedMethodId), args);
+   }
+
    /**
     * Only to be called from generated bytecode or from the Mocking Bridge.
     */
-   public static Object recordOrReplay(
-      Object mock, int mockAccess, String classDesc, String mockDesc, String genericSignature, String exceptions,
-      int executionMode, Object... args)
-      throws Throwable
+   public static Object recordOrReplay(Object mock, MockedMethod mockedMethod, Object[] args) throws Throwable
    {
+      String classDesc = mockedMethod.classDesc;
+      String mockDesc = mockedMethod.nameAndDesc;
+      String genericSignature = mockedMethod.genericSignature;
+      int executionMode = mockedMethod.executionMode;
+
       if (
          RECORD_OR_REPLAY_LOCK.isHeldByCurrentThread() ||
          TEST_ONLY_PHASE_LOCK.isLocked() && !TEST_ONLY_PHASE_LOCK.isHeldByCurrentThread()
@@ -222,7 +232,7 @@ public final class RecordAndReplayExecution
       if (executingTest.isShouldIgnoreMockingCallbacks()) {
          // This occurs when called from a reentrant delegate method, or during static initialization of a mocked class
          // being instantiated for a local mock field.
-         return defaultReturnValue(executingTest, mock, classDesc, mockDesc, genericSignature, executionMode, args);
+         return defaultReturnValue(executingTest, mock, mockedMethod, args);
       }
       else if (executingTest.isProceedingIntoRealImplementation()) {
          if (executionMode == 0) {
@@ -257,7 +267,7 @@ public final class RecordAndReplayExecution
          if (instance == null) {
             // This occurs when a constructor of the mocked class is called in a mock field assignment expression,
             // during initialization of a mocked class, or during the restoration of mocked classes between tests.
-            return defaultReturnValue(executingTest, mock, classDesc, mockDesc, genericSignature, executionMode, args);
+            return defaultReturnValue(executingTest, mock, mockedMethod, args);
          }
 
          Phase currentPhase = instance.getCurrentPhase();
@@ -266,7 +276,8 @@ public final class RecordAndReplayExecution
          boolean withRealImpl = executionMode == 1;
          Object result =
             currentPhase.handleInvocation(
-               mock, mockAccess, classDesc, mockDesc, genericSignature, exceptions, withRealImpl, args);
+               mock, mockedMethod.access, classDesc, mockDesc, mockedMethod.methodKey, genericSignature,
+               mockedMethod.exceptions, withRealImpl, args);
 
          instance.failureState.reportErrorThrownIfAny();
 
@@ -298,21 +309,24 @@ public final class RecordAndReplayExecution
    }
 
    private static Object defaultReturnValue(
-      ExecutingTest executingTest, Object mock, String classDesc, String nameAndDesc, String genericSignature,
-      int executionMode, Object[] args) throws Throwable
+      ExecutingTest executingTest, Object mock, MockedMethod mockedMethod, Object[] args) throws Throwable
    {
+      String classDesc = mockedMethod.classDesc;
+      String nameAndDesc = mockedMethod.nameAndDesc;
       RecordAndReplayExecution execution = executingTest.getCurrentRecordAndReplay();
 
       if (execution != null) {
          Expectation recordedExpectation =
-            execution.executionState.findNonStrictExpectation(mock, classDesc, nameAndDesc, args);
+            execution.executionState.findNonStrictExpectation(
+               mock, classDesc, nameAndDesc, mockedMethod.methodKey, args);
 
          if (recordedExpectation != null) {
             return recordedExpectation.produceResult(mock, args);
          }
       }
 
-      return defaultReturnValue(mock, classDesc, nameAndDesc, genericSignature, executionMode, args);
+      return defaultReturnValue(
+         mock, classDesc, nameAndDesc, mockedMethod.genericSignature, mockedMethod.executionMode, args);
    }
 
    private static boolean inReplayPhase(RecordAndReplayExecution instance)
@@ -50,11 +50,11 @@ final class ReplayPhase extends Phase
 
    @Override
    Object handleInvocation(
-      Object mock, int mockAccess, String mockClassDesc, String mockDesc, String genericSignature, String exceptions,
-      boolean withRealImpl, Object[] args) throws Throwable
+      Object mock, int mockAccess, String mockClassDesc, String mockDesc, String mockedMethodKey,
+      String genericSignature, String[] exceptions, boolean withRealImpl, Object[] args) throws Throwable
    {
       Expectation nonStrictExpectation =
-         recordAndReplay.executionState.findNonStrictExpectation(mock, mockClassDesc, mockDesc, args);
+         recordAndReplay.executionState.findNonStrictExpectation(mock, mockClassDesc, mockDesc, mockedMethodKey, args);
       Object replacementInstance =
          recordAndReplay.executionState.getReplacementInstanceForMethodInvocation(mock, mockDesc);
 
@@ -80,7 +80,7 @@ final class ReplayPhase extends Phase
 
    private Expectation createExpectationIfNonStrictInvocation(
       Object mock, int mockAccess, String mockClassDesc, String mockNameAndDesc, String genericSignature,
-      String exceptions, Object[] args)
+      String[] exceptions, Object[] args)
    {
       Expectation expectation = null;
 
@@ -6,10 +6,30 @@ package mockit.internal.expectations.invocation;
 
 import mockit.internal.util.*;
 
+/**
+ * The cause attached to errors reported for an expected invocation, whose stack trace shows where the invocation was
+ * recorded, replayed, or verified.
+ * <p/>
+ * Only the raw stack trace gets captured when the expectation is created, if at all; it is only converted into
+ * (filtered) stack trace elements when the error is actually reported.
+ */
 final class ExpectationError extends AssertionError
 {
    private String message;
 
+   ExpectationError(boolean withStackTrace)
+   {
+      if (withStackTrace) {
+         super.fillInStackTrace();
+      }
+   }
+
+   /**
+    * Does nothing, so that the stack trace is only captured when requested at construction.
+    */
+   @Override
+   public synchronized Throwable fillInStackTrace() { return this; }
+
    @Override
    public String toString() { return message; }
 
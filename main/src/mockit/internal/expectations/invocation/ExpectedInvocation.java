@@ -11,12 +11,15 @@ import mockit.external.asm4.Type;
 
 import mockit.internal.expectations.*;
 import mockit.internal.expectations.argumentMatching.*;
+import mockit.internal.expectations.mocking.*;
 import mockit.internal.state.*;
 import mockit.internal.util.*;
 
 public final class ExpectedInvocation
 {
    private static final Object UNDEFINED_DEFAULT_RETURN = new Object();
+   private static final boolean WITH_REPLAY_LOCATIONS =
+      !"none".equals(System.getProperty("jmockit-replayLocations"));
 
    public final Object instance;
    public Object replacementInstance;
@@ -26,22 +29,41 @@ public final class ExpectedInvocation
    private final ExpectationError invocationCause;
    private Object defaultReturnValue;
    private Object cascadedMock;
+   private String methodKey;
 
+   /**
+    * Creates an invocation recorded or verified in test code, capturing its location for error reporting.
+    */
    public ExpectedInvocation(
       Object mock, int access, String mockedClassDesc, String mockNameAndDesc, boolean matchInstance,
       String genericSignature, Object[] args)
    {
-      this(mock, access, mockedClassDesc, mockNameAndDesc, matchInstance, genericSignature, null, args);
+      this(mock, access, mockedClassDesc, mockNameAndDesc, matchInstance, genericSignature, null, args, true);
    }
 
+   /**
+    * Creates an invocation which occurred during replay, for an implicit non-strict expectation.
+    * Since these are created for every distinct invocation made by code under test, often from inside loops, capturing
+    * their location can be turned off with the "<code>jmockit-replayLocations=none</code>" system property; errors
+    * reported for them then still have a cause describing the invocation, but without a stack trace.
+    */
    public ExpectedInvocation(
       Object mock, int access, String mockedClassDesc, String mockNameAndDesc, boolean matchInstance,
-      String genericSignature, String exceptions, Object[] args)
+      String genericSignature, String[] exceptions, Object[] args)
+   {
+      this(
+         mock, access, mockedClassDesc, mockNameAndDesc, matchInstance, genericSignature, exceptions, args,
+         WITH_REPLAY_LOCATIONS);
+   }
+
+   private ExpectedInvocation(
+      Object mock, int access, String mockedClassDesc, String mockNameAndDesc, boolean matchInstance,
+      String genericSignature, String[] exceptions, Object[] args, boolean withLocation)
    {
       instance = mock;
       this.matchInstance = matchInstance;
       arguments = new InvocationArguments(access, mockedClassDesc, mockNameAndDesc, genericSignature, exceptions, args);
-      invocationCause = new ExpectationError();
+      invocationCause = new ExpectationError(withLocation);
       determineDefaultReturnValueFromMethodSignature();
    }
 
@@ -56,6 +78,16 @@ public final class ExpectedInvocation
    public String getClassDesc() { return arguments.classDesc; }
    public String getClassName() { return arguments.getClassName(); }
    public String getMethodNameAndDescription() { return arguments.methodNameAndDesc; }
+
+   public String getMethodKey()
+   {
+      if (methodKey == null) {
+         methodKey = MockedMethod.getMethodKey(arguments.classDesc, arguments.methodNameAndDesc);
+      }
+
+      return methodKey;
+   }
+
    public Object[] getArgumentValues() { return arguments.getValues(); }
    public boolean isConstructor() { return arguments.isForConstructor(); }
 
@@ -22,12 +22,13 @@ public final class InvocationArguments
    private RealMethod realMethod;
 
    InvocationArguments(
-      int access, String classDesc, String methodNameAndDesc, String genericSignature, String exceptions, Object[] args)
+      int access, String classDesc, String methodNameAndDesc, String genericSignature, String[] exceptions,
+      Object[] args)
    {
       this.classDesc = classDesc;
       this.methodNameAndDesc = methodNameAndDesc;
       this.genericSignature = genericSignature;
-      this.exceptions = exceptions == null ? null : exceptions.split(" ");
+      this.exceptions = exceptions;
       valuesAndMatchers =
          (access & Opcodes.ACC_VARARGS) == 0 ?
             new ArgumentValuesAndMatchersWithoutVarargs(this, args) :
@@ -264,18 +264,14 @@ final class ExpectationsModifier extends MockedTypeModifier
 
       // Create array for call arguments (third "invoke" argument):
       Type[] argTypes = Type.getArgumentTypes(methodDesc);
-      generateCodeToCreateArrayOfObject(7 + argTypes.length);
-
-      int i = 0;
-      generateCodeToFillArrayElement(i++, access);
-      generateCodeToFillArrayElement(i++, internalClassName);
-      generateCodeToFillArrayElement(i++, methodName);
-      generateCodeToFillArrayElement(i++, methodDesc);
-      generateCodeToFillArrayElement(i++, genericSignature);
-      generateCodeToFillArrayElement(i++, getListOfExceptionsAsSingleString(exceptions));
-      generateCodeToFillArrayElement(i++, executionMode);
-
-      generateCodeToPassMethodArgumentsAsVarargs(argTypes, i, isStatic ? 0 : 1);
+      generateCodeToCreateArrayOfObject(1 + argTypes.length);
+
+      int mockedMethodId =
+         MockedMethod.register(
+            access, internalClassName, methodName + methodDesc, genericSignature, exceptions, executionMode);
+      generateCodeToFillArrayElement(0, mockedMethodId);
+
+      generateCodeToPassMethodArgumentsAsVarargs(argTypes, 1, isStatic ? 0 : 1);
       generateCallToInvocationHandler();
 
       generateDecisionBetweenReturningOrContinuingToRealImplementation();
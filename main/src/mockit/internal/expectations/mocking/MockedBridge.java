@@ -19,17 +19,16 @@ public final class MockedBridge extends MockingBridge
 
    public Object invoke(Object mocked, Method method, Object[] args) throws Throwable
    {
-      String mockedClassDesc = (String) args[1];
+      MockedMethod mockedMethod = MockedMethod.get((Integer) args[0]);
+      String mockedClassDesc = mockedMethod.classDesc;
 
       if (notToBeMocked(mocked, mockedClassDesc)) {
          return Void.class;
       }
 
-      String mockName = (String) args[2];
-      String mockDesc = (String) args[3];
-      String mockNameAndDesc = mockName + mockDesc;
-      Object[] mockArgs = extractMockArguments(args);
-      int executionMode = (Integer) args[6];
+      String mockNameAndDesc = mockedMethod.nameAndDesc;
+      Object[] mockArgs = extractMockArguments(args, 1);
+      int executionMode = mockedMethod.executionMode;
       boolean lockHeldByCurrentThread = RecordAndReplayExecution.RECORD_OR_REPLAY_LOCK.isHeldByCurrentThread();
 
       if (lockHeldByCurrentThread && mocked != null && executionMode == 0) {
@@ -44,22 +43,15 @@ public final class MockedBridge extends MockingBridge
          return Void.class;
       }
 
-      String genericSignature = (String) args[4];
-
       if (lockHeldByCurrentThread && executionMode == 0) {
          return RecordAndReplayExecution.defaultReturnValue(
-            mocked, mockedClassDesc, mockNameAndDesc, genericSignature, 1, mockArgs);
+            mocked, mockedClassDesc, mockNameAndDesc, mockedMethod.genericSignature, 1, mockArgs);
       }
 
-      int mockAccess = (Integer) args[0];
-      String exceptions = (String) args[5];
-
       TestRun.enterNoMockingZone();
 
       try {
-         return RecordAndReplayExecution.recordOrReplay(
-            mocked, mockAccess, mockedClassDesc, mockNameAndDesc, genericSignature, exceptions,
-            executionMode, mockArgs);
+         return RecordAndReplayExecution.recordOrReplay(mocked, mockedMethod, mockArgs);
       }
       finally {
          TestRun.exitNoMockingZone();
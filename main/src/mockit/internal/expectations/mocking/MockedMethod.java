@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.mocking;
+
+import java.util.*;
+
+/**
+ * Describes a mocked method or constructor, as it was when the bytecode redirecting its calls to JMockit was generated.
+ * <p/>
+ * Each distinct description is registered once, when a mocked class is redefined or generated, and gets an integer id
+ * which is then passed by the generated bytecode on each call, instead of the separate strings describing the method.
+ * Ids are never reused, since classes generated for mocked types are not discarded between tests.
+ */
+public final class MockedMethod
+{
+   private static final Map<MockedMethod, Integer> IDS = new HashMap<MockedMethod, Integer>();
+   private static volatile MockedMethod[] registered = new MockedMethod[256];
+
+   public final int access;
+   public final String classDesc;
+   public final String nameAndDesc;
+   public final String methodKey;
+   public final String genericSignature;
+   public final String[] exceptions;
+   public final int executionMode;
+
+   private MockedMethod(
+      int access, String classDesc, String nameAndDesc, String genericSignature, String[] exceptions,
+      int executionMode)
+   {
+      this.access = access;
+      this.classDesc = classDesc;
+      this.nameAndDesc = nameAndDesc;
+      methodKey = getMethodKey(classDesc, nameAndDesc);
+      this.genericSignature = genericSignature;
+      this.exceptions = exceptions == null || exceptions.length == 0 ? null : exceptions.clone();
+      this.executionMode = executionMode;
+   }
+
+   /**
+    * Registers the description of a mocked method, unless an equal one was registered before.
+    *
+    * @return the id to be passed in calls from generated bytecode
+    */
+   static synchronized int register(
+      int access, String classDesc, String nameAndDesc, String genericSignature, String[] exceptions,
+      int executionMode)
+   {
+      // The strings are interned, as string constants passed from generated bytecode would be, since class descriptors
+      // are compared by identity in some places.
+      MockedMethod method =
+         new MockedMethod(
+            access, classDesc.intern(), nameAndDesc.intern(), genericSignature, exceptions, executionMode);
+      Integer existingId = IDS.get(method);
+
+      if (existingId != null) {
+         return existingId;
+      }
+
+      int id = IDS.size();
+      MockedMethod[] methods = registered;
+
+      if (id == methods.length) {
+         MockedMethod[] newMethods = new MockedMethod[2 * id];
+         System.arraycopy(methods, 0, newMethods, 0, id);
+         methods = newMethods;
+      }
+
+      methods[id] = method;
+      registered = methods;
+      IDS.put(method, id);
+      return id;
+   }
+
+   public static MockedMethod get(int id) { return registered[id]; }
+
+   /**
+    * Returns an interned key identifying a mocked method regardless of its return type, as needed when matching
+    * invocations against recorded expectations: the class descriptor, a dot (which cannot occur in descriptors or
+    * method names), and the method name with the parameter descriptors.
+    */
+   public static String getMethodKey(String classDesc, String nameAndDesc)
+   {
+      int endOfParameters = nameAndDesc.indexOf(')') + 1;
+      return (classDesc + '.' + nameAndDesc.substring(0, endOfParameters)).intern();
+   }
+
+   @Override
+   public boolean equals(Object other)
+   {
+      if (this == other) return true;
+      if (!(other instanceof MockedMethod)) return false;
+
+      MockedMethod method = (MockedMethod) other;
+
+      return
+         access == method.access && executionMode == method.executionMode &&
+         classDesc.equals(method.classDesc) && nameAndDesc.equals(method.nameAndDesc) &&
+         (genericSignature == null ?
+            method.genericSignature == null : genericSignature.equals(method.genericSignature)) &&
+         Arrays.equals(exceptions, method.exceptions);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      int result = 31 * classDesc.hashCode() + nameAndDesc.hashCode();
+      result = 31 * result + access;
+      return 31 * result + executionMode;
+   }
+}
@@ -65,43 +65,18 @@ class MockedTypeModifier extends BaseClassModifier
       // First argument: the mock instance, if any.
       boolean isStatic = generateCodeToPassThisOrNullIfStaticMethod(access);
 
-      // Second argument: method access flags.
-      mw.visitLdcInsn(access);
+      // Second argument: the id of the mocked method description, which includes the mode of execution.
+      int mockedMethodId =
+         MockedMethod.register(access, className, name + desc, genericSignature, exceptions, executionMode);
+      mw.visitLdcInsn(mockedMethodId);
 
-      // Third argument: class name.
-      mw.visitLdcInsn(className);
-
-      // Fourth argument: method signature.
-      mw.visitLdcInsn(name + desc);
-
-      // Fifth argument: generic signature, or null if none.
-      generateInstructionToLoadNullableString(genericSignature);
-
-      // Sixth argument: checked exceptions thrown, or null if none.
-      String exceptionsStr = getListOfExceptionsAsSingleString(exceptions);
-      generateInstructionToLoadNullableString(exceptionsStr);
-
-      // Seventh argument: indicate regular or special modes of execution.
-      mw.visitLdcInsn(executionMode);
-      
-      // Sixth argument: call arguments.
+      // Third argument: call arguments.
       mockit.external.asm4.Type[] argTypes = mockit.external.asm4.Type.getArgumentTypes(desc);
       generateCodeToPassMethodArgumentsAsVarargs(isStatic, argTypes);
 
       mw.visitMethodInsn(
          INVOKESTATIC, "mockit/internal/expectations/RecordAndReplayExecution", "recordOrReplay",
-         "(Ljava/lang/Object;ILjava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;I" +
-         "[Ljava/lang/Object;)Ljava/lang/Object;");
-   }
-
-   private void generateInstructionToLoadNullableString(String text)
-   {
-      if (text == null) {
-         mw.visitInsn(ACONST_NULL);
-      }
-      else {
-         mw.visitLdcInsn(text);
-      }
+         "(Ljava/lang/Object;I[Ljava/lang/Object;)Ljava/lang/Object;");
    }
 
    private void generateCodeToPassMethodArgumentsAsVarargs(boolean isStatic, mockit.external.asm4.Type[] argTypes)
@@ -110,26 +85,6 @@ class MockedTypeModifier extends BaseClassModifier
       generateCodeToPassMethodArgumentsAsVarargs(argTypes, 0, isStatic ? 0 : 1);
    }
 
-   protected final String getListOfExceptionsAsSingleString(String[] exceptions)
-   {
-      if (exceptions == null) {
-         return null;
-      }
-      else if (exceptions.length == 1) {
-         return exceptions[0];
-      }
-
-      StringBuilder buf = new StringBuilder(200);
-      String sep = "";
-
-      for (String exception : exceptions) {
-         buf.append(sep).append(exception);
-         sep = " ";
-      }
-
-      return buf.toString();
-   }
-
    protected final boolean isMethodFromObject(String name, String desc)
    {
       return
@@ -5,6 +5,7 @@
 package mockit.internal.state;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import static java.util.Collections.*;
 
@@ -72,6 +73,7 @@ public final class TestRun
 
    // Used only by the Coverage tool:
    private int testId;
+   private static final AtomicInteger individualTestExecutions = new AtomicInteger();
 
    private Class<?> currentTestClass;
    private Object currentTestInstance;
@@ -95,6 +97,15 @@ public final class TestRun
    @SuppressWarnings("UnusedDeclaration")
    public static int getTestId() { return getInstance().testId; }
 
+   /**
+    * Returns the number of times the running test changed in any thread, which is cheap enough to be called from code
+    * instrumented by the Coverage tool.
+    * The count changes whenever an individual test, or a before/after method (including one for a whole test class),
+    * starts or stops running, and when the fixture for an individual test starts being created.
+    */
+   @SuppressWarnings("UnusedDeclaration")
+   public static int getIndividualTestExecutionCount() { return individualTestExecutions.get(); }
+
    public static SavePoint getSavePointForTestClass() { return getInstance().savePointForTestClass; }
 
    public static SharedFieldTypeRedefinitions getSharedFieldTypeRedefinitions()
@@ -165,8 +176,15 @@ public final class TestRun
    public static void setRunningIndividualTest(Object testInstance)
    {
       getInstance().currentTestInstance = testInstance;
+      individualTestExecutions.incrementAndGet();
    }
 
+   /**
+    * Signals that the mock parameters or tested fields of the next individual test are about to be created, so that
+    * code executed from then on is not attributed to the test which ran before.
+    */
+   public static void startCreatingTestFixture() { individualTestExecutions.incrementAndGet(); }
+
    public static void setSavePointForTestClass(SavePoint savePoint)
    {
       getInstance().savePointForTestClass = savePoint;
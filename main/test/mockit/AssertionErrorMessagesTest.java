@@ -130,6 +130,32 @@ public final class AssertionErrorMessagesTest
       }
    }
 
+   @Test
+   public void causeOfUnexpectedInvocationVerifiedInOrderShowsWhereTheInvocationWasReplayed()
+   {
+      mock.doSomething(-5, "abc");
+      mock.doSomethingElse("test");
+      mock.doSomething(123, "Test");
+
+      try {
+         new VerificationsInOrder() {{
+            mock.doSomethingElse(anyString);
+            unverifiedInvocations();
+            mock.doSomething(anyInt, anyString);
+         }};
+         fail();
+      }
+      catch (UnexpectedInvocation e) {
+         Throwable replayedInvocation = e.getCause();
+         assertTrue(replayedInvocation.toString().contains("with arguments: -5, \"abc\""));
+
+         StackTraceElement replayLocation = replayedInvocation.getStackTrace()[1];
+         assertEquals(
+            "causeOfUnexpectedInvocationVerifiedInOrderShowsWhereTheInvocationWasReplayed",
+            replayLocation.getMethodName());
+      }
+   }
+
    @Test
    public void unexpectedLastInvocationForExpectationsPartiallyVerifiedInOrder()
    {
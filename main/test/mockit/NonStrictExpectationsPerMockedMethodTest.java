@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+public final class NonStrictExpectationsPerMockedMethodTest
+{
+   @SuppressWarnings("UnusedDeclaration")
+   static class Collaborator
+   {
+      Collaborator() {}
+      Collaborator(int i) {}
+      int getValue() { return -1; }
+      int getValue(int i) { return i; }
+      int getValue(long l) { return (int) l; }
+      String getText(int i) { return ""; }
+   }
+
+   @SuppressWarnings("UnusedDeclaration")
+   static class AnotherCollaborator
+   {
+      int getValue() { return -2; }
+      int getValue(int i) { return i; }
+   }
+
+   @Mocked Collaborator mock;
+   @Mocked AnotherCollaborator anotherMock;
+
+   @Test
+   public void recordSameMethodInDifferentMockedClasses()
+   {
+      new NonStrictExpectations() {{
+         mock.getValue(); result = 1;
+         anotherMock.getValue(); result = 2;
+      }};
+
+      assertEquals(2, anotherMock.getValue());
+      assertEquals(1, mock.getValue());
+   }
+
+   @Test
+   public void recordOverloadedMethodsWithSameArguments()
+   {
+      new NonStrictExpectations() {{
+         mock.getValue(5L); result = 3;
+         mock.getValue(5); result = 2;
+         mock.getValue(); result = 1;
+      }};
+
+      assertEquals(1, mock.getValue());
+      assertEquals(2, mock.getValue(5));
+      assertEquals(3, mock.getValue(5L));
+      assertEquals(0, anotherMock.getValue(5));
+   }
+
+   @Test
+   public void recordMethodsWithSameParametersButDifferentNamesAndReturnTypes()
+   {
+      new NonStrictExpectations() {{
+         mock.getText(1); result = "one";
+         mock.getValue(1); result = 10;
+      }};
+
+      assertEquals("one", mock.getText(1));
+      assertEquals(10, mock.getValue(1));
+      assertNull(mock.getText(2));
+   }
+
+   @Test
+   public void replaceEarlierRecordingOfSameInvocationWithoutAffectingOtherMethods()
+   {
+      new NonStrictExpectations() {{
+         mock.getValue(1); result = 1;
+         anotherMock.getValue(1); result = 2;
+         mock.getValue(1); result = 3;
+      }};
+
+      assertEquals(3, mock.getValue(1));
+      assertEquals(2, anotherMock.getValue(1));
+   }
+
+   @Test
+   public void matchFirstOfSeveralRecordingsForSameMethodInTheOrderRecorded()
+   {
+      new NonStrictExpectations() {{
+         mock.getValue(withNotEqual(0)); result = 1;
+         mock.getValue(2L); result = 5;
+         mock.getValue(anyInt); result = 2;
+      }};
+
+      assertEquals(1, mock.getValue(3));
+      assertEquals(2, mock.getValue(0));
+      assertEquals(5, mock.getValue(2L));
+   }
+
+   @Test
+   public void verifyImplicitExpectationsCreatedDuringReplayForEachMethod()
+   {
+      new Collaborator(1);
+      mock.getValue();
+      mock.getValue(1);
+      mock.getValue(1);
+      anotherMock.getValue(1);
+
+      new Verifications() {{
+         new Collaborator(anyInt); times = 1;
+         mock.getValue(); times = 1;
+         mock.getValue(1); times = 2;
+         mock.getValue(anyLong); times = 0;
+         anotherMock.getValue(anyInt); times = 1;
+         anotherMock.getValue(); times = 0;
+      }};
+   }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2006-2013 Rogério Liesenfeld
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.mocking;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+import static mockit.external.asm4.Opcodes.*;
+
+public final class MockedMethodTest
+{
+   // Registered descriptions are never discarded, so each test uses class descriptors of its own.
+   static final String CLASS_DESC = "mockit/internal/expectations/mocking/MockedMethodTest$";
+
+   @Test
+   public void registerEqualDescriptionsOnlyOnce()
+   {
+      String classDesc = CLASS_DESC + "Same";
+      int id = MockedMethod.register(ACC_PUBLIC, classDesc, "doIt(I)V", null, new String[] {"java/io/IOException"}, 0);
+
+      int sameId = MockedMethod.register(
+         ACC_PUBLIC, new String(classDesc), new String("doIt(I)V"), null, new String[] {"java/io/IOException"}, 0);
+
+      assertEquals(id, sameId);
+   }
+
+   @Test
+   public void registerDescriptionsDifferingInAnyPartSeparately()
+   {
+      String classDesc = CLASS_DESC + "Different";
+      int id = MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", null, null, 0);
+
+      int[] otherIds = {
+         MockedMethod.register(ACC_PUBLIC, classDesc + '2', "doIt()V", null, null, 0),
+         MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()I", null, null, 0),
+         MockedMethod.register(ACC_PUBLIC + ACC_STATIC, classDesc, "doIt()V", null, null, 0),
+         MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", "<T:Ljava/lang/Object;>()V", null, 0),
+         MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", null, new String[] {"java/lang/Exception"}, 0),
+         MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", null, null, 1)
+      };
+
+      for (int i = 0; i < otherIds.length; i++) {
+         assertFalse(otherIds[i] == id);
+
+         for (int j = i + 1; j < otherIds.length; j++) {
+            assertFalse(otherIds[i] == otherIds[j]);
+         }
+      }
+   }
+
+   @Test
+   public void getRegisteredDescriptionWithInternedStrings()
+   {
+      String classDesc = new String(CLASS_DESC + "Get");
+      String nameAndDesc = new String("find(Ljava/lang/String;)Ljava/util/List;");
+      String signature = "(Ljava/lang/String;)Ljava/util/List<Ljava/lang/String;>;";
+      int id = MockedMethod.register(ACC_PROTECTED, classDesc, nameAndDesc, signature, null, 2);
+
+      MockedMethod method = MockedMethod.get(id);
+
+      assertEquals(ACC_PROTECTED, method.access);
+      assertSame(classDesc.intern(), method.classDesc);
+      assertSame(nameAndDesc.intern(), method.nameAndDesc);
+      assertEquals(signature, method.genericSignature);
+      assertNull(method.exceptions);
+      assertEquals(2, method.executionMode);
+      assertSame(MockedMethod.getMethodKey(classDesc, nameAndDesc), method.methodKey);
+   }
+
+   @Test
+   public void treatEmptyExceptionListAsNoneAndCopyItWhenGiven()
+   {
+      String classDesc = CLASS_DESC + "Exceptions";
+      int id = MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", null, null, 0);
+      assertEquals(id, MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", null, new String[0], 0));
+
+      String[] exceptions = {"java/io/IOException"};
+      int idWithExceptions = MockedMethod.register(ACC_PUBLIC, classDesc, "doIt()V", null, exceptions, 0);
+      exceptions[0] = "java/lang/Exception";
+
+      assertArrayEquals(new String[] {"java/io/IOException"}, MockedMethod.get(idWithExceptions).exceptions);
+   }
+
+   @Test
+   public void keepDescriptionsRetrievableAfterRegisteringMoreThanTheInitialCapacity()
+   {
+      String classDesc = CLASS_DESC + "Many";
+      int[] ids = new int[600];
+
+      for (int i = 0; i < ids.length; i++) {
+         ids[i] = MockedMethod.register(ACC_PUBLIC, classDesc, "method" + i + "()V", null, null, 0);
+      }
+
+      for (int i = 0; i < ids.length; i++) {
+         MockedMethod method = MockedMethod.get(ids[i]);
+         assertEquals("method" + i + "()V", method.nameAndDesc);
+         assertEquals(ids[i], MockedMethod.register(ACC_PUBLIC, classDesc, "method" + i + "()V", null, null, 0));
+      }
+   }
+
+   @Test
+   public void getMethodKeyIgnoringReturnType()
+   {
+      String classDesc = CLASS_DESC + "Key";
+
+      String key = MockedMethod.getMethodKey(classDesc, "compute(ILjava/lang/String;)J");
+
+      assertEquals(classDesc + ".compute(ILjava/lang/String;)", key);
+      assertSame(key, MockedMethod.getMethodKey(classDesc, "compute(ILjava/lang/String;)V"));
+      assertFalse(key.equals(MockedMethod.getMethodKey(classDesc, "compute(I)J")));
+      assertFalse(key.equals(MockedMethod.getMethodKey(classDesc + '2', "compute(ILjava/lang/String;)J")));
+   }
+}